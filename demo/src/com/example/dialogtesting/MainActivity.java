@@ -129,10 +129,11 @@ public class MainActivity extends ActionBarActivity {
 							new DialogInterface.OnClickListener() {
 								@Override
 								public void onClick(DialogInterface dialog, int which) {
-									testo.setText(sdf.format(CalendarDialogFragment.getDate()));
+									CalendarDialogFragment calendar = (CalendarDialogFragment) getFragmentManager().findFragmentByTag("calendar_dialog");
+									testo.setText(sdf.format(calendar.getDate()));
 								}
 							}, start);
-					dialog.show(getFragmentManager(), "edit_dialog");
+					dialog.show(getFragmentManager(), "calendar_dialog");
 					
 				}
 			});
@@ -5,4 +5,23 @@ public class DialogDefines {
 	public static final String MESSAGE_KEY = "_message_";
 	public static final String YES_KEY = "_yes_";
 	public static final String NO_KEY = "_no_";
+	public static final String DATE_KEY = "_date_";
+	public static final String TIME_KEY = "_time_";
+	public static final String SPEC_KEY = "_spec_";
+	public static final String REQUEST_CODE_KEY = "_request_code_";
+	public static final String RESULT_KEY = "_result_";
+	public static final String ITEMS_KEY = "_items_";
+	public static final String MULTIPLE_KEY = "_multiple_";
+	public static final String CHECKED_KEY = "_checked_";
+	public static final String PROGRESS_KEY = "_progress_";
+	public static final String SUGGESTIONS_KEY = "_suggestions_";
+	public static final String MIN_DATE_KEY = "_min_date_";
+	public static final String MAX_DATE_KEY = "_max_date_";
+	public static final String DISABLED_DAYS_KEY = "_disabled_days_";
+	public static final String MIN_YEAR_KEY = "_min_year_";
+	public static final String MAX_YEAR_KEY = "_max_year_";
+	public static final String SELECTION_MODE_KEY = "_selection_mode_";
+	public static final String SELECTED_DAYS_KEY = "_selected_days_";
+	public static final String RANGE_START_KEY = "_range_start_";
+	public static final String RANGE_END_KEY = "_range_end_";
 }
@@ -0,0 +1,188 @@
+package lib.dialogfragment.defs;
+
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * The texts of a dialog (title, message, confirm and deny buttons), as a single argument. <br />
+ * Every text is either a plain string or a string resource id, the latter being resolved
+ * only when the dialog is shown, so it follows the current locale and parcels as a single int. <br />
+ * A presence bitmask tells which texts are set, so absent ones cost nothing to parcel
+ * and no lookup at all to read back.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class DialogSpec implements Parcelable {
+	public static final int TITLE = 0;
+	public static final int MESSAGE = 1;
+	public static final int YES = 2;
+	public static final int NO = 3;
+	private static final int FIELDS = 4;
+
+	// bit i: text i is a string; bit FIELDS + i: text i is a resource id
+	private int mMask;
+	private final String[] mTexts = new String[FIELDS];
+	private final int[] mResIds = new int[FIELDS];
+
+	public DialogSpec() {}
+
+	/**
+	 * @param other the spec to copy; later changes to either don't affect the other
+	 */
+	public DialogSpec(DialogSpec other) {
+		mMask = other.mMask;
+		System.arraycopy(other.mTexts, 0, mTexts, 0, FIELDS);
+		System.arraycopy(other.mResIds, 0, mResIds, 0, FIELDS);
+	}
+
+	public DialogSpec setTitle(String title) {
+		return set(TITLE, title);
+	}
+
+	public DialogSpec setTitle(int resId) {
+		return set(TITLE, resId);
+	}
+
+	public DialogSpec setMessage(String message) {
+		return set(MESSAGE, message);
+	}
+
+	public DialogSpec setMessage(int resId) {
+		return set(MESSAGE, resId);
+	}
+
+	public DialogSpec setYes(String yes) {
+		return set(YES, yes);
+	}
+
+	public DialogSpec setYes(int resId) {
+		return set(YES, resId);
+	}
+
+	public DialogSpec setNo(String no) {
+		return set(NO, no);
+	}
+
+	public DialogSpec setNo(int resId) {
+		return set(NO, resId);
+	}
+
+	/**
+	 * @param field one of {@link #TITLE}, {@link #MESSAGE}, {@link #YES} or {@link #NO}
+	 * @param text the text; null or empty unsets it
+	 */
+	public DialogSpec set(int field, String text) {
+		unset(field);
+		if(text != null && text.length() > 0) {
+			mTexts[field] = text;
+			mMask |= 1 << field;
+		}
+		return this;
+	}
+
+	/**
+	 * @param field one of {@link #TITLE}, {@link #MESSAGE}, {@link #YES} or {@link #NO}
+	 * @param resId a string resource id; 0 unsets the text
+	 */
+	public DialogSpec set(int field, int resId) {
+		unset(field);
+		if(resId != 0) {
+			mResIds[field] = resId;
+			mMask |= 1 << (FIELDS + field);
+		}
+		return this;
+	}
+
+	public boolean has(int field) {
+		return (mMask & (1 << field | 1 << (FIELDS + field))) != 0;
+	}
+
+	/**
+	 * @return the text of the field, or null if it isn't set
+	 */
+	public String getString(Resources res, int field) {
+		if((mMask & 1 << field) != 0) {
+			return mTexts[field];
+		}
+		if((mMask & 1 << (FIELDS + field)) != 0) {
+			return res.getString(mResIds[field]);
+		}
+		return null;
+	}
+
+	/**
+	 * @return the text of the field, or the default resource if it isn't set
+	 */
+	public String getString(Resources res, int field, int defaultResId) {
+		String ret = getString(res, field);
+		return ret != null ? ret : res.getString(defaultResId);
+	}
+
+	/**
+	 * Reads the spec out of a dialog's arguments. <br />
+	 * Arguments written with the separate {@link DialogDefines} keys, as older versions did,
+	 * are read too.
+	 * @param args the dialog's arguments, may be null
+	 * @return the spec, never null
+	 */
+	public static DialogSpec from(Bundle args) {
+		if(args == null) {
+			return new DialogSpec();
+		}
+		DialogSpec ret = args.getParcelable(DialogDefines.SPEC_KEY);
+		if(ret == null) {
+			ret = new DialogSpec()
+				.setTitle(args.getString(DialogDefines.TITLE_KEY))
+				.setMessage(args.getString(DialogDefines.MESSAGE_KEY))
+				.setYes(args.getString(DialogDefines.YES_KEY))
+				.setNo(args.getString(DialogDefines.NO_KEY));
+		}
+		return ret;
+	}
+
+	private void unset(int field) {
+		mMask &= ~(1 << field | 1 << (FIELDS + field));
+		mTexts[field] = null;
+		mResIds[field] = 0;
+	}
+
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+
+	@Override
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeInt(mMask);
+		for(int i = 0; i < FIELDS; i++) {
+			if((mMask & 1 << i) != 0) {
+				dest.writeString(mTexts[i]);
+			} else if((mMask & 1 << (FIELDS + i)) != 0) {
+				dest.writeInt(mResIds[i]);
+			}
+		}
+	}
+
+	public static final Parcelable.Creator<DialogSpec> CREATOR = new Parcelable.Creator<DialogSpec>() {
+		@Override
+		public DialogSpec createFromParcel(Parcel source) {
+			DialogSpec ret = new DialogSpec();
+			ret.mMask = source.readInt();
+			for(int i = 0; i < FIELDS; i++) {
+				if((ret.mMask & 1 << i) != 0) {
+					ret.mTexts[i] = source.readString();
+				} else if((ret.mMask & 1 << (FIELDS + i)) != 0) {
+					ret.mResIds[i] = source.readInt();
+				}
+			}
+			return ret;
+		}
+
+		@Override
+		public DialogSpec[] newArray(int size) {
+			return new DialogSpec[size];
+		}
+	};
+}
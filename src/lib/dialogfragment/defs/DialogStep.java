@@ -0,0 +1,99 @@
+package lib.dialogfragment.defs;
+
+import java.util.Date;
+
+import lib.dialogfragment.util.CalendarCache;
+import lib.dialogfragment.util.EpochDay;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * One step of a dialog sequence: what it asks for and its texts. <br />
+ * A confirm step shows the message of its {@link DialogSpec}, an edit step a text box
+ * and a calendar step a month grid, all of them with the spec's title and buttons.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class DialogStep implements Parcelable {
+	public static final int TYPE_CONFIRM = 0;
+	public static final int TYPE_EDIT = 1;
+	public static final int TYPE_CALENDAR = 2;
+	public static final int TYPE_COUNT = 3;
+
+	private final int mType;
+	private final DialogSpec mSpec;
+	private final long mEpochDay;
+
+	private DialogStep(int type, DialogSpec spec, long epochDay) {
+		mType = type;
+		mSpec = spec != null ? spec : new DialogSpec();
+		mEpochDay = epochDay;
+	}
+
+	/**
+	 * A step confirmed with its <i>yes</i> button; its result is <i>true</i>
+	 */
+	public static DialogStep confirm(DialogSpec spec) {
+		return new DialogStep(TYPE_CONFIRM, spec, 0);
+	}
+
+	/**
+	 * A step asking for a text; its result is the text entered
+	 */
+	public static DialogStep edit(DialogSpec spec) {
+		return new DialogStep(TYPE_EDIT, spec, 0);
+	}
+
+	/**
+	 * A step asking for a date; its result is the picked {@link EpochDay epoch day}
+	 * @param date the starting date, null for today
+	 */
+	public static DialogStep calendar(DialogSpec spec, Date date) {
+		long millis = date != null ? date.getTime() : System.currentTimeMillis();
+		return new DialogStep(TYPE_CALENDAR, spec, EpochDay.fromMillis(millis, CalendarCache.getTimeZone()));
+	}
+
+	public int getType() {
+		return mType;
+	}
+
+	public DialogSpec getSpec() {
+		return mSpec;
+	}
+
+	/**
+	 * @return the starting date of a calendar step
+	 */
+	public long getEpochDay() {
+		return mEpochDay;
+	}
+
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+
+	@Override
+	public void writeToParcel(Parcel dest, int flags) {
+		dest.writeInt(mType);
+		mSpec.writeToParcel(dest, flags);
+		if(mType == TYPE_CALENDAR) {
+			dest.writeLong(mEpochDay);
+		}
+	}
+
+	public static final Parcelable.Creator<DialogStep> CREATOR = new Parcelable.Creator<DialogStep>() {
+		@Override
+		public DialogStep createFromParcel(Parcel source) {
+			int type = source.readInt();
+			DialogSpec spec = DialogSpec.CREATOR.createFromParcel(source);
+			long epochDay = type == TYPE_CALENDAR ? source.readLong() : 0;
+			return new DialogStep(type, spec, epochDay);
+		}
+
+		@Override
+		public DialogStep[] newArray(int size) {
+			return new DialogStep[size];
+		}
+	};
+}
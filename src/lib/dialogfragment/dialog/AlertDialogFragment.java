@@ -1,14 +1,20 @@
 package lib.dialogfragment.dialog;
 
-import lib.dialogfragment.R;
 import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.dialog.listener.DialogListeners;
 import lib.dialogfragment.dialog.listener.DismissListener;
 import lib.dialogfragment.dialog.listener.interfaces.OnConfirmListener;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.util.ButtonLabels;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.app.DialogFragment;
+import android.app.FragmentManager;
 import android.content.DialogInterface;
+import android.content.res.Resources;
 import android.os.Bundle;
 
 /**
@@ -19,9 +25,11 @@ import android.os.Bundle;
  * @author (SleeBee) Federico Mendez
  *
  */
-public class AlertDialogFragment extends DialogFragment {
-	private static DialogInterface.OnClickListener mListener;
+public class AlertDialogFragment extends DialogFragment implements DialogInterface.OnClickListener {
+	private DialogInterface.OnClickListener mListener;
 	private OnConfirmListener mCallback;
+	private long mCreateStart;
+	private DialogResult.Binding<Boolean> mResult;
 
 	/**
 	 * Mandatory empty constructor
@@ -38,17 +46,27 @@ public class AlertDialogFragment extends DialogFragment {
 	 * @return a ready to {@link DialogFragment.show} dialog
 	 */
 	public static AlertDialogFragment newInstance(String title, String msg, String yesButton, DialogInterface.OnClickListener yesListener) {
+		return newInstance(new DialogSpec().setTitle(title).setMessage(msg).setYes(yesButton), yesListener);
+	}
+
+	/**
+	 * Use this method to create a new instance of the alert dialog out of a {@link DialogSpec}. <br />
+	 * Its texts can be either plain strings or string resources, which are resolved
+	 * when the dialog is shown.
+	 * @param spec The texts of the Dialog
+	 * @param yesListener user-defined callback for the confirm button
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static AlertDialogFragment newInstance(DialogSpec spec, DialogInterface.OnClickListener yesListener) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
 		AlertDialogFragment ret = new AlertDialogFragment();
 
 		Bundle args = new Bundle();
-		args.putString(DialogDefines.TITLE_KEY, title);
-		args.putString(DialogDefines.MESSAGE_KEY, msg);
-		if(yesButton != null && yesButton.length() > 0) {
-			args.putString(DialogDefines.YES_KEY, yesButton);
-		}
+		args.putParcelable(DialogDefines.SPEC_KEY, spec);
 		ret.setArguments(args);
-		mListener = yesListener;
+		ret.mListener = yesListener;
 
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
 		return ret;
 	}
 
@@ -76,6 +94,12 @@ public class AlertDialogFragment extends DialogFragment {
 		return newInstance(title, msg, null);
 	}
 
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mResult = DialogResult.attach(this);
+	}
+
 	/**
 	 * This method is called automatically by the 
 	 * {@link DialogFragment}'s <i>show</i> method. <br />
@@ -83,47 +107,138 @@ public class AlertDialogFragment extends DialogFragment {
 	 */
 	@Override
 	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
 		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
-		Bundle args = getArguments();
-		String title = null;
-		String msg = "";
-		String yes = null;
-		if(args != null) {
-			if(args.containsKey(DialogDefines.TITLE_KEY)){
-				title = args.getString(DialogDefines.TITLE_KEY);
-			}
-			if(args.containsKey(DialogDefines.MESSAGE_KEY)){
-				msg = args.getString(DialogDefines.MESSAGE_KEY);
-			}
-			if(args.containsKey(DialogDefines.YES_KEY)) {
-				yes = args.getString(DialogDefines.YES_KEY);
-			} else {
-				yes = getString(R.string.yes);
-			}
-		}
+		DialogSpec spec = DialogSpec.from(getArguments());
+		Resources res = getResources();
+		String title = spec.getString(res, DialogSpec.TITLE);
+		String msg = spec.getString(res, DialogSpec.MESSAGE);
+		String yes = spec.has(DialogSpec.YES) ? spec.getString(res, DialogSpec.YES) : ButtonLabels.getYes(res);
 
 		if(title != null) {
 			builder.setTitle(title);
 		}
-		builder.setMessage(msg);
-		DialogInterface.OnClickListener listener = null;
-		if(mCallback == null) {
-			if(mListener == null) {
-				listener = new DismissListener();
+		if(msg != null) {
+			builder.setMessage(msg);
+		}
+		builder.setPositiveButton(yes, this);
+
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		Dialog ret = builder.create();
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
+	}
+
+	/**
+	 * Has the dialog confirm through the listener its Activity registers on {@link DialogListeners}
+	 * under this request code, instead of one given to <i>newInstance</i>. <br />
+	 * Unlike the latter, it's found again after the dialog is re-created.
+	 * @param requestCode the request code the listener is registered with
+	 * @return this same dialog
+	 */
+	public AlertDialogFragment setRequestCode(int requestCode) {
+		ensureArguments().putInt(DialogDefines.REQUEST_CODE_KEY, requestCode);
+		return this;
+	}
+
+	private Bundle ensureArguments() {
+		Bundle ret = getArguments();
+		if(ret == null) {
+			ret = new Bundle();
+			setArguments(ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the listener given to newInstance, else the one registered for the
+	 * request code, else a dismissive one
+	 */
+	private DialogInterface.OnClickListener getListener() {
+		if(mListener != null) {
+			return mListener;
+		}
+		Bundle args = getArguments();
+		if(args != null && args.containsKey(DialogDefines.REQUEST_CODE_KEY)) {
+			DialogInterface.OnClickListener ret = DialogListeners.get(getActivity(), args.getInt(DialogDefines.REQUEST_CODE_KEY));
+			if(ret != null) {
+				return ret;
+			}
+		}
+		return DismissListener.getInstance();
+	}
+
+	/**
+	 * Click dispatcher shared by the buttons of the dialog
+	 */
+	@Override
+	public void onClick(DialogInterface dialog, int which) {
+		int span = which == DialogInterface.BUTTON_POSITIVE ? DialogMetrics.SPAN_CALLBACK_POSITIVE : DialogMetrics.SPAN_CALLBACK_NEGATIVE;
+		long start = DialogMetrics.begin(span);
+		switch(which) {
+		case DialogInterface.BUTTON_POSITIVE:
+			if(mCallback != null) {
+				mCallback.onConfirm();
 			} else {
-				listener = mListener;
+				getListener().onClick(dialog, which);
 			}
-		} else {
-			listener = new DialogInterface.OnClickListener() {
-				@Override
-				public void onClick(DialogInterface dialog, int which) {
-					mCallback.onConfirm();
-				}
-			};
+			mResult.complete(Boolean.TRUE);
+			break;
+		default:
+			DismissListener.getInstance().onClick(dialog, which);
+			mResult.cancel();
+			break;
 		}
-		builder.setPositiveButton(yes, listener);
+		DialogMetrics.end(span, start);
+	}
+
+	/**
+	 * Same as <i>show</i>, but callable from any thread and at any time. <br />
+	 * If the Activity isn't resumed, the dialog waits for it on {@link PendingDialogsFragment}
+	 * instead of throwing; see {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
+	 */
+	public void showFromAnyThread(FragmentManager manager, String tag) {
+		PendingDialogsFragment.showFromAnyThread(manager, this, tag);
+	}
+
+	/**
+	 * Shows the dialog, from any thread and at any time like {@link #showFromAnyThread},
+	 * and hands back its result: <i>true</i> once confirmed, cancelled otherwise
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the dialog's result
+	 */
+	public DialogResult<Boolean> showForResult(FragmentManager manager) {
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		DialogMetrics.watchFirstFrame(getDialog(), mCreateStart);
+		mCreateStart = 0;
+	}
 
-		return builder.create();
+	@Override
+	public void onDismiss(DialogInterface dialog) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_DISMISS);
+		super.onDismiss(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_DISMISS, start);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		mResult.cancel();
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		mResult.detach(getActivity());
 	}
 
 	@Override
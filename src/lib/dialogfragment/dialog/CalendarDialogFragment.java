@@ -2,36 +2,64 @@ package lib.dialogfragment.dialog;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 
 import lib.dialogfragment.R;
 import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.dialog.listener.DialogListeners;
 import lib.dialogfragment.dialog.listener.DismissListener;
 import lib.dialogfragment.dialog.listener.interfaces.OnDateConfirmListener;
+import lib.dialogfragment.dialog.listener.interfaces.OnDaysConfirmListener;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.events.EventLoader;
+import lib.dialogfragment.events.EventSource;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.util.ButtonLabels;
+import lib.dialogfragment.util.CalendarCache;
+import lib.dialogfragment.util.DaySet;
+import lib.dialogfragment.util.DialogViewPool;
+import lib.dialogfragment.util.EpochDay;
+import lib.dialogfragment.widget.MonthView;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.app.DialogFragment;
-import android.content.Context;
+import android.app.FragmentManager;
 import android.content.DialogInterface;
+import android.content.res.Resources;
 import android.os.Bundle;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.widget.CalendarView;
 
 /**
- * Date Picker Dialog that presents a Calendar View. <br />
+ * Date Picker Dialog that presents a month grid ({@link MonthView}). <br />
  * I really dislike Android's default {@link DatePicker}. I find it really cumbersome; 
  * plus, {@link DatePickerDialog} looks kinda small. <br />
  * So I just went ahead and designed one myself. <br />
  * I try not to meddle with those pesky CallBacks that have to be implemented by our
- * activities, so there're a few methods to get the date out of our dialog
+ * activities, so there're a few methods to get the date out of our dialog. <br />
+ * The selected date is kept by each dialog as a plain epoch day, so several
+ * calendars can be open at once without stepping on each other's date. <br />
+ * It can pick a range of dates, or any set of them, instead (see {@link #setSelectionMode});
+ * they're handed back as a {@link DaySet}, one bit per day, and saved as such.
  * @author SleeBee (Federico Mendez)
  *
  */
-public class CalendarDialogFragment extends DialogFragment {
-	private static Calendar mCal;
+public class CalendarDialogFragment extends DialogFragment implements DialogInterface.OnClickListener, MonthView.OnDateChangeListener {
+	private long mDay;
+	private int mSelectionMode;
+	private long mRangeStart = MonthView.NO_DAY;
+	private long mRangeEnd = MonthView.NO_DAY;
+	private DaySet mDays;
+	private MonthView mMonthView;
+	private EventSource mEventSource;
+	private EventLoader mEventLoader;
 	private DialogInterface.OnClickListener mListener;
 	private OnDateConfirmListener mCallback;
+	private OnDaysConfirmListener mDaysCallback;
+	private long mCreateStart;
+	// completed with a Calendar for single dates, with a DaySet otherwise
+	private DialogResult.Binding<Object> mResult;
 
 	/**
 	 * Mandatory empty constructor
@@ -49,28 +77,32 @@ public class CalendarDialogFragment extends DialogFragment {
 	 * @return a ready to {@link DialogFragment.show} dialog
 	 */
 	public static CalendarDialogFragment newInstance(String title, String yesButton, String noButton, DialogInterface.OnClickListener listener, Date date) {
-		CalendarDialogFragment ret = new CalendarDialogFragment();
+		return newInstance(new DialogSpec().setTitle(title).setYes(yesButton).setNo(noButton), listener, date);
+	}
 
-		mCal = Calendar.getInstance();
+	/**
+	 * Use this method to create a new instance of the calendar dialog out of a {@link DialogSpec}. <br />
+	 * Its texts can be either plain strings or string resources, which are resolved
+	 * when the dialog is shown.
+	 * @param spec The texts of the Dialog
+	 * @param listener user-defined callback for the confirm button
+	 * @param date calendar's starting date
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static CalendarDialogFragment newInstance(DialogSpec spec, DialogInterface.OnClickListener listener, Date date) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
+		CalendarDialogFragment ret = new CalendarDialogFragment();
 
 		Bundle args = new Bundle();
-		if(title != null && yesButton.length() > 0) {
-			args.putString(DialogDefines.TITLE_KEY, title);
-		}
-		if(yesButton != null && yesButton.length() > 0) {
-			args.putString(DialogDefines.YES_KEY, yesButton);
-		}
-		if(noButton != null && noButton.length() > 0) {
-			args.putString(DialogDefines.NO_KEY, noButton);
-		}
+		args.putParcelable(DialogDefines.SPEC_KEY, spec);
 		if(listener != null) {
 			ret.mListener = listener;
 		}
-		if(date != null) {
-			mCal.setTime(date);
-		}
+		long millis = date != null ? date.getTime() : System.currentTimeMillis();
+		args.putLong(DialogDefines.DATE_KEY, EpochDay.fromMillis(millis, CalendarCache.getTimeZone()));
 		ret.setArguments(args);
 
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
 		return ret;
 	}
 	/**
@@ -150,92 +182,442 @@ public class CalendarDialogFragment extends DialogFragment {
 		return newInstance(null, null, null, listener, null);
 	}
 
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		CalendarCache.watch(getActivity());
+		Bundle args = getArguments();
+		if(savedInstanceState != null && savedInstanceState.containsKey(DialogDefines.DATE_KEY)) {
+			mDay = savedInstanceState.getLong(DialogDefines.DATE_KEY);
+		} else if(args != null && args.containsKey(DialogDefines.DATE_KEY)) {
+			mDay = args.getLong(DialogDefines.DATE_KEY);
+		} else {
+			mDay = EpochDay.fromMillis(System.currentTimeMillis(), CalendarCache.getTimeZone());
+		}
+		if(args != null) {
+			mSelectionMode = args.getInt(DialogDefines.SELECTION_MODE_KEY, MonthView.SELECTION_SINGLE);
+		}
+		Bundle state = savedInstanceState != null ? savedInstanceState : args;
+		if(state != null) {
+			mRangeStart = state.getLong(DialogDefines.RANGE_START_KEY, MonthView.NO_DAY);
+			mRangeEnd = state.getLong(DialogDefines.RANGE_END_KEY, MonthView.NO_DAY);
+			DaySet days = state.getParcelable(DialogDefines.SELECTED_DAYS_KEY);
+			// the arguments' set is copied, so it's the starting one again if the dialog is shown anew
+			if(days != null) {
+				mDays = state == args ? new DaySet(days) : days;
+			}
+		}
+		if(mDays == null) {
+			mDays = new DaySet();
+		}
+		mResult = DialogResult.attach(this);
+		if(mEventSource == null && getActivity() instanceof EventSource.Provider) {
+			mEventSource = ((EventSource.Provider) getActivity()).getEventSource(getTag());
+		}
+	}
+
 	@Override
 	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
 		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
 
-		String title = null;
-		String yes = null;
-		String no = null;
+		DialogSpec spec = DialogSpec.from(getArguments());
+		Resources res = getResources();
+		String title = spec.getString(res, DialogSpec.TITLE);
+		String yes = spec.has(DialogSpec.YES) ? spec.getString(res, DialogSpec.YES) : ButtonLabels.getYes(res);
+		String no = spec.has(DialogSpec.NO) ? spec.getString(res, DialogSpec.NO) : ButtonLabels.getNo(res);
+
+		long inflateStart = DialogMetrics.begin(DialogMetrics.SPAN_INFLATE);
+		View view = DialogViewPool.obtain(getActivity(), R.layout.calendar_dialog_fragment);
+		DialogMetrics.end(DialogMetrics.SPAN_INFLATE, inflateStart);
+		MonthView cal = (MonthView) view.findViewById(R.id.cal_calendar_dialog);
 		Bundle args = getArguments();
 		if(args != null) {
-			if(args.containsKey(DialogDefines.TITLE_KEY)){
-				title = args.getString(DialogDefines.TITLE_KEY);
-			}
-			if(args.containsKey(DialogDefines.YES_KEY)) {
-				yes = args.getString(DialogDefines.YES_KEY);
-			} else {
-				yes = getString(R.string.yes);
-			}
-			if(args.containsKey(DialogDefines.NO_KEY)) {
-				no = args.getString(DialogDefines.NO_KEY);
-			} else {
-				no = getString(R.string.no);
-			}
+			cal.setDayBounds(args.getLong(DialogDefines.MIN_DATE_KEY, Long.MIN_VALUE), args.getLong(DialogDefines.MAX_DATE_KEY, Long.MAX_VALUE));
+			cal.setDisabledDays((DaySet) args.getParcelable(DialogDefines.DISABLED_DAYS_KEY));
 		}
-
-		LayoutInflater inflater = (LayoutInflater) getActivity().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-		View view = inflater.inflate(R.layout.calendar_dialog_fragment, null);
-		CalendarView cal = (CalendarView) view.findViewById(R.id.cal_calendar_dialog);
-		cal.setDate(mCal.getTimeInMillis());
-		cal.setOnDateChangeListener(new CalendarView.OnDateChangeListener() {
-			@Override
-			public void onSelectedDayChange(CalendarView view, int year, int month,
-					int dayOfMonth) {
-				mCal.set(Calendar.YEAR, year);
-				mCal.set(Calendar.MONTH, month);
-				mCal.set(Calendar.DAY_OF_MONTH, dayOfMonth);
-			}
-		});
+		// set even to the defaults, so the range comes from the arguments alone; pooled views are fresh, never reused
+		cal.setYearRange(args != null ? args.getInt(DialogDefines.MIN_YEAR_KEY, MonthView.DEFAULT_MIN_YEAR) : MonthView.DEFAULT_MIN_YEAR,
+				args != null ? args.getInt(DialogDefines.MAX_YEAR_KEY, MonthView.DEFAULT_MAX_YEAR) : MonthView.DEFAULT_MAX_YEAR);
+		if(mEventSource != null) {
+			mEventLoader = new EventLoader(mEventSource);
+			cal.setEventLoader(mEventLoader);
+		}
+		cal.setSelectedDay(mDay);
+		cal.setSelectionMode(mSelectionMode);
+		cal.setSelectedRange(mRangeStart, mRangeEnd);
+		cal.setSelectedDays(mDays);
+		cal.setOnDateChangeListener(this);
+		mMonthView = cal;
 
 		if(title != null) {
 			builder.setTitle(title);
 		}
 		builder.setView(view);
-		builder.setNegativeButton(no, new DismissListener());
+		builder.setNegativeButton(no, this);
+
+		builder.setPositiveButton(yes, this);
+
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		Dialog ret = builder.create();
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
+	}
+
+	@Override
+	public void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		outState.putLong(DialogDefines.DATE_KEY, mDay);
+		outState.putLong(DialogDefines.RANGE_START_KEY, mRangeStart);
+		outState.putLong(DialogDefines.RANGE_END_KEY, mRangeEnd);
+		outState.putParcelable(DialogDefines.SELECTED_DAYS_KEY, mDays);
+	}
+
+	/**
+	 * This method returns the selected date in a {@link Calendar} format for easier end-user manipulation. <br />
+	 * A new {@link Calendar} is built on every call, set to the local midnight of the date.
+	 * @return the selected date; or the starting date if none was selected
+	 */
+	public Calendar getDateCalendar() {
+		Calendar ret = CalendarCache.newCalendar();
+		ret.clear();
+		ret.set(EpochDay.year(mDay), EpochDay.month(mDay), EpochDay.dayOfMonth(mDay));
+		return ret;
+	}
+
+	/**
+	 * This method returns the selected date in a {@link java.util.Date} format.
+	 * @return the selected date; or the starting date if none was selected
+	 */
+	public Date getDate() {
+		return new Date(getDateMilis());
+	}
+
+	/**
+	 * This method returns the selected date in milliseconds, so it can be converted to any type you need.
+	 * @return the milliseconds value of the local midnight of the selected date; or of the starting date if none was selected
+	 */
+	public long getDateMilis() {
+		return EpochDay.toMillis(mDay, CalendarCache.getTimeZone());
+	}
+
+	/**
+	 * This method returns the selected date as an epoch day, which needs no allocation at all.
+	 * @return days since 1970-01-01 of the selected date; or of the starting date if none was selected
+	 */
+	public long getEpochDay() {
+		return mDay;
+	}
+
+	/**
+	 * The dates picked, whatever the selection mode: the selected date alone, every date
+	 * of the range, or the dates picked one by one.
+	 * @return a new set every call, so it can be kept or changed freely
+	 */
+	public DaySet getSelectedDays() {
+		switch(mSelectionMode) {
+		case MonthView.SELECTION_RANGE:
+			DaySet ret = new DaySet();
+			if(mRangeStart != MonthView.NO_DAY) {
+				ret.addRange(mRangeStart, mRangeEnd != MonthView.NO_DAY ? mRangeEnd : mRangeStart);
+			}
+			return ret;
+		case MonthView.SELECTION_MULTIPLE:
+			return new DaySet(mDays);
+		default:
+			return new DaySet().add(mDay);
+		}
+	}
+
+	/**
+	 * @return the first epoch day of the range picked, {@link MonthView#NO_DAY} if none
+	 */
+	public long getRangeStart() {
+		return mRangeStart;
+	}
+
+	/**
+	 * @return the last epoch day of the range picked, the same as the first if only that one was
+	 * picked; {@link MonthView#NO_DAY} if none
+	 */
+	public long getRangeEnd() {
+		return mRangeEnd != MonthView.NO_DAY ? mRangeEnd : mRangeStart;
+	}
+
+	/**
+	 * Has the dialog pick a range of dates, or any set of them, instead of a single date. <br />
+	 * They're confirmed through an {@link OnDaysConfirmListener} implemented by the Activity,
+	 * else through {@link #getSelectedDays()} or {@link #showForDaysResult}.
+	 * @param mode one of MonthView's <i>SELECTION_</i> constants
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setSelectionMode(int mode) {
+		ensureArguments().putInt(DialogDefines.SELECTION_MODE_KEY, mode);
+		return this;
+	}
+
+	/**
+	 * Sets the starting range, for the {@link MonthView#SELECTION_RANGE} mode
+	 * @param from the first date of the range
+	 * @param to the last date of the range, both included
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setSelectedRange(Date from, Date to) {
+		Bundle args = ensureArguments();
+		TimeZone zone = CalendarCache.getTimeZone();
+		args.putLong(DialogDefines.RANGE_START_KEY, EpochDay.fromMillis(from.getTime(), zone));
+		args.putLong(DialogDefines.RANGE_END_KEY, EpochDay.fromMillis(to.getTime(), zone));
+		return this;
+	}
+
+	/**
+	 * Sets the starting dates, for the {@link MonthView#SELECTION_MULTIPLE} mode
+	 * @param days the dates selected to begin with
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setSelectedDays(DaySet days) {
+		ensureArguments().putParcelable(DialogDefines.SELECTED_DAYS_KEY, days);
+		return this;
+	}
+
+	/**
+	 * Limits the dates that can be picked; the months out of bounds can't be paged to either.
+	 * @param min the first date that can be picked, null for no limit
+	 * @param max the last date that can be picked, null for no limit
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setDateBounds(Date min, Date max) {
+		Bundle args = ensureArguments();
+		TimeZone zone = CalendarCache.getTimeZone();
+		args.putLong(DialogDefines.MIN_DATE_KEY, min != null ? EpochDay.fromMillis(min.getTime(), zone) : Long.MIN_VALUE);
+		args.putLong(DialogDefines.MAX_DATE_KEY, max != null ? EpochDay.fromMillis(max.getTime(), zone) : Long.MAX_VALUE);
+		return this;
+	}
+
+	/**
+	 * Sets the years offered when jumping to a year, from the calendar's title. <br />
+	 * They go from {@link MonthView#DEFAULT_MIN_YEAR} to {@link MonthView#DEFAULT_MAX_YEAR}
+	 * unless set otherwise, narrowed down to the date bounds if any.
+	 * @param minYear the first year offered
+	 * @param maxYear the last year offered
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setYearRange(int minYear, int maxYear) {
+		Bundle args = ensureArguments();
+		args.putInt(DialogDefines.MIN_YEAR_KEY, minYear);
+		args.putInt(DialogDefines.MAX_YEAR_KEY, maxYear);
+		return this;
+	}
+
+	/**
+	 * Keeps some dates from being picked, such as holidays or fully booked days. <br />
+	 * The set travels in the dialog's arguments, so it's kept when the dialog is re-created.
+	 * If the starting date is one of them, the confirm button stays disabled until another is picked.
+	 * @param days the dates that can't be picked
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setDisabledDays(DaySet days) {
+		ensureArguments().putParcelable(DialogDefines.DISABLED_DAYS_KEY, days);
+		return this;
+	}
+
+	/**
+	 * Marks the days with events. Only the months shown, and those around them, are
+	 * counted, in the background; the latest ones are kept while paging. <br />
+	 * Like a listener given to <i>newInstance</i>, the source isn't kept when the dialog is
+	 * re-created; have the Activity implement {@link EventSource.Provider} for that.
+	 * @param source the events, e.g. an {@link lib.dialogfragment.events.EventIndex}
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setEventSource(EventSource source) {
+		mEventSource = source;
+		return this;
+	}
+
+	/**
+	 * Has the dialog confirm through the listener its Activity registers on {@link DialogListeners}
+	 * under this request code, instead of one given to <i>newInstance</i>. <br />
+	 * Unlike the latter, it's found again after the dialog is re-created.
+	 * @param requestCode the request code the listener is registered with
+	 * @return this same dialog
+	 */
+	public CalendarDialogFragment setRequestCode(int requestCode) {
+		ensureArguments().putInt(DialogDefines.REQUEST_CODE_KEY, requestCode);
+		return this;
+	}
+
+	private Bundle ensureArguments() {
+		Bundle ret = getArguments();
+		if(ret == null) {
+			ret = new Bundle();
+			setArguments(ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the listener given to newInstance, else the one registered for the
+	 * request code, else a dismissive one
+	 */
+	private DialogInterface.OnClickListener getListener() {
+		if(mListener != null) {
+			return mListener;
+		}
+		Bundle args = getArguments();
+		if(args != null && args.containsKey(DialogDefines.REQUEST_CODE_KEY)) {
+			DialogInterface.OnClickListener ret = DialogListeners.get(getActivity(), args.getInt(DialogDefines.REQUEST_CODE_KEY));
+			if(ret != null) {
+				return ret;
+			}
+		}
+		return DismissListener.getInstance();
+	}
 
-		DialogInterface.OnClickListener listener = null;
-		if(mCallback == null) {
-			if(mListener == null) {
-				listener = new DismissListener();
+	/**
+	 * Click dispatcher shared by the buttons of the dialog
+	 */
+	@Override
+	public void onClick(DialogInterface dialog, int which) {
+		int span = which == DialogInterface.BUTTON_POSITIVE ? DialogMetrics.SPAN_CALLBACK_POSITIVE : DialogMetrics.SPAN_CALLBACK_NEGATIVE;
+		long start = DialogMetrics.begin(span);
+		switch(which) {
+		case DialogInterface.BUTTON_POSITIVE:
+			if(mSelectionMode != MonthView.SELECTION_SINGLE && mDaysCallback != null) {
+				mDaysCallback.onConfirm(getSelectedDays());
+			} else if(mCallback != null) {
+				mCallback.onConfirm(getDateCalendar());
 			} else {
-				listener = mListener;
+				getListener().onClick(dialog, which);
 			}
-		} else {
-			listener = new DialogInterface.OnClickListener() {
-				@Override
-				public void onClick(DialogInterface dialog, int which) {
-					mCallback.onConfirm(mCal);
-				}
-			};
+			if(mSelectionMode == MonthView.SELECTION_SINGLE) {
+				mResult.complete(getDateCalendar());
+			} else {
+				mResult.complete(getSelectedDays());
+			}
+			break;
+		default:
+			DismissListener.getInstance().onClick(dialog, which);
+			mResult.cancel();
+			break;
 		}
-		builder.setPositiveButton(yes, listener);
+		DialogMetrics.end(span, start);
+	}
 
-		return builder.create();
+	@Override
+	public void onSelectedDayChange(MonthView view, int year, int month, int dayOfMonth) {
+		mDay = EpochDay.of(year, month, dayOfMonth);
+		mRangeStart = view.getRangeStart();
+		mRangeEnd = view.getRangeEnd();
+		updatePositiveButton();
 	}
 
 	/**
-	 * This method returns the selected date in a {@link Calendar} format for easier end-user manipulation.
-	 * @return the selected date; or the current date if none was selected
+	 * Enables the confirm button only while there's something that can be picked
 	 */
-	public static Calendar getDateCalendar() {
-		return mCal;
+	private void updatePositiveButton() {
+		AlertDialog dialog = (AlertDialog) getDialog();
+		if(dialog == null || mMonthView == null) {
+			return;
+		}
+		boolean enabled;
+		switch(mSelectionMode) {
+		case MonthView.SELECTION_RANGE:
+			enabled = mRangeStart != MonthView.NO_DAY;
+			break;
+		case MonthView.SELECTION_MULTIPLE:
+			enabled = !mDays.isEmpty();
+			break;
+		default:
+			enabled = mMonthView.isSelectable(mDay);
+			break;
+		}
+		dialog.getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(enabled);
 	}
 
 	/**
-	 * This method returns the selected date in a {@link java.util.Date} format.
-	 * @return the selected date; or the current date if none was selected
+	 * Same as <i>show</i>, but callable from any thread and at any time. <br />
+	 * If the Activity isn't resumed, the dialog waits for it on {@link PendingDialogsFragment}
+	 * instead of throwing; see {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
 	 */
-	public static Date getDate() {
-		return new Date(mCal.getTimeInMillis());
+	public void showFromAnyThread(FragmentManager manager, String tag) {
+		PendingDialogsFragment.showFromAnyThread(manager, this, tag);
 	}
 
 	/**
-	 * This method returns the selected date in milliseconds, so it can be converted to any type you need.
-	 * @return the milliseconds value of the selected date; or of the current date if none was selected
+	 * Shows the dialog, from any thread and at any time like {@link #showFromAnyThread},
+	 * and hands back its result: the picked date once confirmed, cancelled otherwise
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the dialog's result
+	 * @throws IllegalStateException if the dialog picks a range or several dates; use {@link #showForDaysResult} then
+	 */
+	public DialogResult<Calendar> showForResult(FragmentManager manager) {
+		if(getRequestedSelectionMode() != MonthView.SELECTION_SINGLE) {
+			throw new IllegalStateException("The dialog picks several dates, show it with showForDaysResult");
+		}
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	/**
+	 * Same as {@link #showForResult}, for the range and multiple selection modes:
+	 * the result is every date picked
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the dialog's result
+	 * @throws IllegalStateException if the dialog picks a single date; use {@link #showForResult} then
 	 */
-	public static long getDateMilis() {
-		return mCal.getTimeInMillis();
+	public DialogResult<DaySet> showForDaysResult(FragmentManager manager) {
+		if(getRequestedSelectionMode() == MonthView.SELECTION_SINGLE) {
+			throw new IllegalStateException("The dialog picks a single date, show it with showForResult");
+		}
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	/**
+	 * @return the mode given to {@link #setSelectionMode}, which only reaches mSelectionMode on <i>onCreate</i>
+	 */
+	private int getRequestedSelectionMode() {
+		Bundle args = getArguments();
+		return args != null ? args.getInt(DialogDefines.SELECTION_MODE_KEY, MonthView.SELECTION_SINGLE) : MonthView.SELECTION_SINGLE;
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		DialogMetrics.watchFirstFrame(getDialog(), mCreateStart);
+		mCreateStart = 0;
+		updatePositiveButton();
+	}
+
+	@Override
+	public void onDismiss(DialogInterface dialog) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_DISMISS);
+		super.onDismiss(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_DISMISS, start);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		mResult.cancel();
+	}
+
+	@Override
+	public void onDestroyView() {
+		super.onDestroyView();
+		mMonthView = null;
+		if(mEventLoader != null) {
+			mEventLoader.release();
+			mEventLoader = null;
+		}
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		mResult.detach(getActivity());
 	}
 
 	@Override
@@ -244,5 +626,8 @@ public class CalendarDialogFragment extends DialogFragment {
 		if(a instanceof OnDateConfirmListener) {
 			mCallback = (OnDateConfirmListener) a;
 		}
+		if(a instanceof OnDaysConfirmListener) {
+			mDaysCallback = (OnDaysConfirmListener) a;
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package lib.dialogfragment.dialog;
+
+import lib.dialogfragment.dialog.queue.BaseDialogQueue;
+import android.app.Activity;
+import android.app.Dialog;
+import android.app.DialogFragment;
+import android.app.FragmentManager;
+import android.app.FragmentTransaction;
+import android.os.Bundle;
+
+/**
+ * Dialog queue. <br />
+ * Shows one dialog at a time, highest priority first, merges repeated dialogs
+ * sharing a key and keeps a bounded backlog of the rest. Critical dialogs take
+ * the place of less important ones already showing. See {@link BaseDialogQueue}. <br />
+ * Each dialog is shown on its own back stack entry, which is how the queue
+ * finds out it was dismissed; while the Activity's state is saved, the queue waits
+ * for it to resume instead. Create it in the Activity's <i>onCreate</i> and
+ * {@link #release()} it on <i>onDestroy</i>.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class DialogQueue extends BaseDialogQueue<DialogFragment> implements FragmentManager.OnBackStackChangedListener {
+	private final FragmentManager mManager;
+
+	public DialogQueue(Activity activity) {
+		this(activity, DEFAULT_CAPACITY, DropPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * @param activity the Activity that shows the dialogs
+	 * @param capacity the most dialogs that can wait in line
+	 * @param policy what to discard once the line is full
+	 */
+	public DialogQueue(Activity activity, int capacity, DropPolicy policy) {
+		super(activity, capacity, policy);
+		mManager = activity.getFragmentManager();
+		mManager.addOnBackStackChangedListener(this);
+	}
+
+	/**
+	 * Discards every pending dialog and stops listening to the FragmentManager
+	 * and to the Activity's lifecycle
+	 */
+	@Override
+	public void release() {
+		super.release();
+		mManager.removeOnBackStackChangedListener(this);
+	}
+
+	@Override
+	public void onBackStackChanged() {
+		onDialogsChanged();
+	}
+
+	@Override
+	protected void show(DialogFragment dialog, String tag) {
+		FragmentTransaction ft = mManager.beginTransaction();
+		ft.addToBackStack(tag);
+		dialog.show(ft, tag);
+	}
+
+	@Override
+	protected void dismiss(DialogFragment dialog) {
+		dialog.dismiss();
+	}
+
+	@Override
+	protected boolean isShown(String tag) {
+		return mManager.findFragmentByTag(tag) != null;
+	}
+
+	@Override
+	protected Bundle getArguments(DialogFragment dialog) {
+		return dialog.getArguments();
+	}
+
+	@Override
+	protected Dialog getDialog(DialogFragment dialog) {
+		return dialog.getDialog();
+	}
+}
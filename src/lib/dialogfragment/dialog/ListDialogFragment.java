@@ -0,0 +1,344 @@
+package lib.dialogfragment.dialog;
+
+import lib.dialogfragment.R;
+import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.dialog.listener.DialogListeners;
+import lib.dialogfragment.dialog.listener.DismissListener;
+import lib.dialogfragment.dialog.listener.interfaces.OnItemsConfirmListener;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.list.ArrayItemSource;
+import lib.dialogfragment.list.ItemListAdapter;
+import lib.dialogfragment.list.ItemSource;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.util.ButtonLabels;
+import lib.dialogfragment.util.DialogViewPool;
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.app.DialogFragment;
+import android.app.FragmentManager;
+import android.content.DialogInterface;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.EditText;
+import android.widget.ListView;
+
+/**
+ * Dialog to pick one or several items out of a list, however long. <br />
+ * Rows are recycled, so only the visible ones are ever built, and the text box on top
+ * narrows the list down to the items starting with what's typed, searching a sorted
+ * index in the background. <br />
+ * The items can be given as an array or as an {@link ItemSource} read on demand. An array
+ * is saved along with the dialog only while its text fits {@link #MAX_SAVED_CHARS}, since the
+ * saved state of the whole Activity has to fit in a single binder transaction (about 1 MB);
+ * larger arrays and item sources are kept in memory only, and the Activity hands them back
+ * through {@link ItemSource.Provider} after the dialog is re-created.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class ListDialogFragment extends DialogFragment implements DialogInterface.OnClickListener, AdapterView.OnItemClickListener, TextWatcher {
+	/** Most characters, all items together, an array of items can have and still be saved with the dialog */
+	public static final int MAX_SAVED_CHARS = 16 * 1024;
+	private static final int[] NO_POSITIONS = new int[0];
+
+	private ItemSource mSource;
+	private ItemListAdapter mAdapter;
+	private DialogInterface.OnClickListener mListener = null;
+	private OnItemsConfirmListener mCallback;
+	private long mCreateStart;
+	private DialogResult.Binding<int[]> mResult;
+
+	/**
+	 * Mandatory empty constructor
+	 */
+	public ListDialogFragment() {}
+
+	/**
+	 * Use this method to create a new instance of the list dialog
+	 * while using the Resources <i>yes</i> and <i>no</i> strings. <br />
+	 * Items longer than {@link #MAX_SAVED_CHARS} in all aren't saved with the dialog, like
+	 * an {@link ItemSource}.
+	 * @param title The title of the Dialog
+	 * @param items The items to pick from
+	 * @param multiple Whether several items can be picked
+	 * @param listener Your listener/callback reference for the confirmation of the dialog
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static ListDialogFragment newInstance(String title, String[] items, boolean multiple, DialogInterface.OnClickListener listener) {
+		ListDialogFragment ret = newInstance(new DialogSpec().setTitle(title), new ArrayItemSource(items), multiple, listener);
+		if(fitsSavedState(items)) {
+			ret.getArguments().putStringArray(DialogDefines.ITEMS_KEY, items);
+		}
+		return ret;
+	}
+
+	/**
+	 * Use this method to create a new instance of the list dialog over an {@link ItemSource}. <br />
+	 * The source isn't saved with the dialog: once re-created, the dialog asks its Activity
+	 * for it again if it implements {@link ItemSource.Provider}.
+	 * @param spec The texts of the Dialog
+	 * @param source The items to pick from
+	 * @param multiple Whether several items can be picked
+	 * @param listener Your listener/callback reference for the confirmation of the dialog
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static ListDialogFragment newInstance(DialogSpec spec, ItemSource source, boolean multiple, DialogInterface.OnClickListener listener) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
+		ListDialogFragment ret = new ListDialogFragment();
+
+		Bundle args = new Bundle();
+		args.putParcelable(DialogDefines.SPEC_KEY, spec);
+		args.putBoolean(DialogDefines.MULTIPLE_KEY, multiple);
+		ret.mSource = source;
+		if(listener != null) {
+			ret.mListener = listener;
+		}
+		ret.setArguments(args);
+
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
+		return ret;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mResult = DialogResult.attach(this);
+	}
+
+	@Override
+	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
+		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+		Bundle args = getArguments();
+		DialogSpec spec = DialogSpec.from(args);
+		Resources res = getResources();
+		String title = spec.getString(res, DialogSpec.TITLE);
+		String yes = spec.has(DialogSpec.YES) ? spec.getString(res, DialogSpec.YES) : ButtonLabels.getYes(res);
+		String no = spec.has(DialogSpec.NO) ? spec.getString(res, DialogSpec.NO) : ButtonLabels.getNo(res);
+
+		long inflateStart = DialogMetrics.begin(DialogMetrics.SPAN_INFLATE);
+		View v = DialogViewPool.obtain(getActivity(), R.layout.list_dialog_fragment);
+		DialogMetrics.end(DialogMetrics.SPAN_INFLATE, inflateStart);
+
+		mAdapter = new ItemListAdapter(getActivity(), getItemSource(), args != null && args.getBoolean(DialogDefines.MULTIPLE_KEY));
+		if(savedInstanceState != null) {
+			mAdapter.setCheckedPositions(savedInstanceState.getIntArray(DialogDefines.CHECKED_KEY));
+		}
+		ListView list = (ListView) v.findViewById(R.id.lst_list_dialog);
+		list.setAdapter(mAdapter);
+		list.setOnItemClickListener(this);
+		EditText filter = (EditText) v.findViewById(R.id.edt_list_dialog);
+		// also re-applies the filter when the text is restored after a re-creation
+		filter.addTextChangedListener(this);
+
+		builder.setView(v);
+		if(title != null) {
+			builder.setTitle(title);
+		}
+		builder.setPositiveButton(yes, this);
+		builder.setNegativeButton(no, this);
+
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		Dialog ret = builder.create();
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
+	}
+
+	/**
+	 * @return whether the items are at most {@link #MAX_SAVED_CHARS} long in all, so they can be saved with the dialog
+	 */
+	private static boolean fitsSavedState(String[] items) {
+		int chars = 0;
+		for(String item : items) {
+			if(item != null) {
+				chars += item.length();
+				if(chars > MAX_SAVED_CHARS) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the source given to newInstance, else the items in the arguments,
+	 * else the one the Activity provides
+	 */
+	private ItemSource getItemSource() {
+		if(mSource != null) {
+			return mSource;
+		}
+		Bundle args = getArguments();
+		String[] items = args != null ? args.getStringArray(DialogDefines.ITEMS_KEY) : null;
+		if(items != null) {
+			mSource = new ArrayItemSource(items);
+		} else if(getActivity() instanceof ItemSource.Provider) {
+			mSource = ((ItemSource.Provider) getActivity()).getItemSource(getTag());
+		}
+		if(mSource == null) {
+			mSource = new ArrayItemSource(new String[0]);
+		}
+		return mSource;
+	}
+
+	/**
+	 * @return the positions of the checked items, ascending; empty before the dialog is created
+	 */
+	public int[] getCheckedPositions() {
+		return mAdapter != null ? mAdapter.getCheckedPositions() : NO_POSITIONS;
+	}
+
+	/**
+	 * Has the dialog confirm through the listener its Activity registers on {@link DialogListeners}
+	 * under this request code, instead of one given to <i>newInstance</i>. <br />
+	 * Unlike the latter, it's found again after the dialog is re-created.
+	 * @param requestCode the request code the listener is registered with
+	 * @return this same dialog
+	 */
+	public ListDialogFragment setRequestCode(int requestCode) {
+		ensureArguments().putInt(DialogDefines.REQUEST_CODE_KEY, requestCode);
+		return this;
+	}
+
+	private Bundle ensureArguments() {
+		Bundle ret = getArguments();
+		if(ret == null) {
+			ret = new Bundle();
+			setArguments(ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the listener given to newInstance, else the one registered for the
+	 * request code, else a dismissive one
+	 */
+	private DialogInterface.OnClickListener getListener() {
+		if(mListener != null) {
+			return mListener;
+		}
+		Bundle args = getArguments();
+		if(args != null && args.containsKey(DialogDefines.REQUEST_CODE_KEY)) {
+			DialogInterface.OnClickListener ret = DialogListeners.get(getActivity(), args.getInt(DialogDefines.REQUEST_CODE_KEY));
+			if(ret != null) {
+				return ret;
+			}
+		}
+		return DismissListener.getInstance();
+	}
+
+	/**
+	 * Click dispatcher shared by the buttons of the dialog
+	 */
+	@Override
+	public void onClick(DialogInterface dialog, int which) {
+		int span = which == DialogInterface.BUTTON_POSITIVE ? DialogMetrics.SPAN_CALLBACK_POSITIVE : DialogMetrics.SPAN_CALLBACK_NEGATIVE;
+		long start = DialogMetrics.begin(span);
+		switch(which) {
+		case DialogInterface.BUTTON_POSITIVE:
+			int[] positions = getCheckedPositions();
+			if(mCallback != null) {
+				mCallback.onConfirm(positions);
+			} else {
+				getListener().onClick(dialog, which);
+			}
+			mResult.complete(positions);
+			break;
+		default:
+			DismissListener.getInstance().onClick(dialog, which);
+			mResult.cancel();
+			break;
+		}
+		DialogMetrics.end(span, start);
+	}
+
+	@Override
+	public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+		// ids are positions in the source, whatever the filter
+		mAdapter.toggle((int) id);
+	}
+
+	@Override
+	public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+	@Override
+	public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+	@Override
+	public void afterTextChanged(Editable s) {
+		if(mAdapter != null) {
+			mAdapter.setFilter(s.toString());
+		}
+	}
+
+	/**
+	 * Same as <i>show</i>, but callable from any thread and at any time. <br />
+	 * If the Activity isn't resumed, the dialog waits for it on {@link PendingDialogsFragment}
+	 * instead of throwing; see {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
+	 */
+	public void showFromAnyThread(FragmentManager manager, String tag) {
+		PendingDialogsFragment.showFromAnyThread(manager, this, tag);
+	}
+
+	/**
+	 * Shows the dialog, from any thread and at any time like {@link #showFromAnyThread},
+	 * and hands back its result: the positions of the checked items once confirmed, cancelled otherwise
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the dialog's result
+	 */
+	public DialogResult<int[]> showForResult(FragmentManager manager) {
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		DialogMetrics.watchFirstFrame(getDialog(), mCreateStart);
+		mCreateStart = 0;
+	}
+
+	@Override
+	public void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		outState.putIntArray(DialogDefines.CHECKED_KEY, getCheckedPositions());
+	}
+
+	@Override
+	public void onDismiss(DialogInterface dialog) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_DISMISS);
+		super.onDismiss(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_DISMISS, start);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		mResult.cancel();
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		if(mAdapter != null) {
+			mAdapter.release();
+		}
+		mResult.detach(getActivity());
+	}
+
+	@Override
+	public void onAttach(Activity a) {
+		super.onAttach(a);
+		if(a instanceof OnItemsConfirmListener) {
+			mCallback = (OnItemsConfirmListener) a;
+		}
+	}
+}
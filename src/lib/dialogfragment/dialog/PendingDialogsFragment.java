@@ -0,0 +1,167 @@
+package lib.dialogfragment.dialog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.util.MainThreadBatcher;
+import android.app.DialogFragment;
+import android.app.Fragment;
+import android.app.FragmentManager;
+import android.app.FragmentTransaction;
+import android.os.Bundle;
+
+/**
+ * Headless fragment holding the dialogs asked to show while its Activity wasn't resumed. <br />
+ * Showing a dialog after <i>onSaveInstanceState</i> throws, so through {@link #show(FragmentManager, DialogFragment, String)}
+ * the dialog waits here instead, keyed by its tag, and every dialog waiting gets added
+ * with a single {@link FragmentTransaction} once the Activity resumes. <br />
+ * The fragment is retained, so whatever is waiting survives configuration changes.
+ * Should the process die meanwhile, the dialogs come back from their class and arguments. <br />
+ * Must be used from the main thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class PendingDialogsFragment extends Fragment {
+	private static final String TAG = "_pending_dialogs_";
+	private static final String PENDING_KEY = "_pending_";
+	private static final String TAG_KEY = "_tag_";
+	private static final String CLASS_KEY = "_class_";
+	private static final String ARGS_KEY = "_args_";
+
+	// added but not attached yet, so findFragmentByTag can't see them
+	private static final WeakHashMap<FragmentManager, PendingDialogsFragment> sAdding = new WeakHashMap<FragmentManager, PendingDialogsFragment>();
+
+	private final LinkedHashMap<String, DialogFragment> mPending = new LinkedHashMap<String, DialogFragment>();
+
+	/**
+	 * Mandatory empty constructor
+	 */
+	public PendingDialogsFragment() {}
+
+	/**
+	 * Shows the dialog right away if the Activity is resumed, or holds it until it is. <br />
+	 * A dialog held with the same tag as a newer one gets replaced by it, and a dialog whose
+	 * tag is already showing by the time the Activity resumes is skipped.
+	 * @param manager The FragmentManager of the Activity
+	 * @param dialog The dialog to show
+	 * @param tag The tag for the dialog
+	 */
+	public static void show(FragmentManager manager, DialogFragment dialog, String tag) {
+		PendingDialogsFragment pending = (PendingDialogsFragment) manager.findFragmentByTag(TAG);
+		if(pending == null) {
+			pending = sAdding.get(manager);
+		}
+		if(pending == null) {
+			pending = new PendingDialogsFragment();
+			sAdding.put(manager, pending);
+			manager.beginTransaction().add(pending, TAG).commitAllowingStateLoss();
+		} else if(pending.isResumed()) {
+			dialog.show(manager, tag);
+			return;
+		}
+		pending.mPending.remove(tag);
+		pending.mPending.put(tag, dialog);
+	}
+
+	/**
+	 * Same as {@link #show(FragmentManager, DialogFragment, String)}, but callable from any thread. <br />
+	 * Off the main thread the dialog is shown on the next batch of
+	 * {@link MainThreadBatcher}, together with any other dialog requested meanwhile.
+	 * @param manager The FragmentManager of the Activity
+	 * @param dialog The dialog to show
+	 * @param tag The tag for the dialog
+	 */
+	public static void showFromAnyThread(final FragmentManager manager, final DialogFragment dialog, final String tag) {
+		if(MainThreadBatcher.isMainThread()) {
+			show(manager, dialog, tag);
+			return;
+		}
+		MainThreadBatcher.post(new Runnable() {
+			@Override
+			public void run() {
+				show(manager, dialog, tag);
+			}
+		});
+	}
+
+	/**
+	 * Shows the dialog like {@link #showFromAnyThread}, for a new {@link DialogResult}: the
+	 * handle's id goes into the dialog's arguments, for the dialog to {@link DialogResult#attach}
+	 * to, and tags it as well
+	 * @param manager The FragmentManager of the Activity
+	 * @param dialog The dialog to show
+	 * @return the handle to the dialog's result
+	 */
+	public static <T> DialogResult<T> showForResult(FragmentManager manager, DialogFragment dialog) {
+		DialogResult<T> ret = new DialogResult<T>();
+		Bundle args = dialog.getArguments();
+		if(args == null) {
+			args = new Bundle();
+			dialog.setArguments(args);
+		}
+		args.putInt(DialogDefines.RESULT_KEY, ret.getId());
+		showFromAnyThread(manager, dialog, DialogResult.TAG_PREFIX + ret.getId());
+		return ret;
+	}
+
+	/**
+	 * @return how many dialogs are waiting for the Activity to resume
+	 */
+	public int getPendingCount() {
+		return mPending.size();
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		setRetainInstance(true);
+		sAdding.values().remove(this);
+		if(savedInstanceState != null) {
+			ArrayList<Bundle> saved = savedInstanceState.getParcelableArrayList(PENDING_KEY);
+			if(saved != null) {
+				for(Bundle entry : saved) {
+					DialogFragment dialog = (DialogFragment) Fragment.instantiate(getActivity(), entry.getString(CLASS_KEY), entry.getBundle(ARGS_KEY));
+					mPending.put(entry.getString(TAG_KEY), dialog);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onResume() {
+		super.onResume();
+		if(mPending.isEmpty()) {
+			return;
+		}
+		FragmentManager manager = getFragmentManager();
+		FragmentTransaction ft = manager.beginTransaction();
+		for(Map.Entry<String, DialogFragment> entry : mPending.entrySet()) {
+			if(manager.findFragmentByTag(entry.getKey()) == null) {
+				ft.add(entry.getValue(), entry.getKey());
+			}
+		}
+		mPending.clear();
+		ft.commit();
+	}
+
+	@Override
+	public void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		if(mPending.isEmpty()) {
+			return;
+		}
+		ArrayList<Bundle> saved = new ArrayList<Bundle>(mPending.size());
+		for(Map.Entry<String, DialogFragment> entry : mPending.entrySet()) {
+			Bundle bundle = new Bundle();
+			bundle.putString(TAG_KEY, entry.getKey());
+			bundle.putString(CLASS_KEY, entry.getValue().getClass().getName());
+			bundle.putBundle(ARGS_KEY, entry.getValue().getArguments());
+			saved.add(bundle);
+		}
+		outState.putParcelableArrayList(PENDING_KEY, saved);
+	}
+}
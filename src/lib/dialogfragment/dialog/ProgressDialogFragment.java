@@ -0,0 +1,238 @@
+package lib.dialogfragment.dialog;
+
+import lib.dialogfragment.R;
+import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.dialog.progress.ProgressTracker;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.util.DialogViewPool;
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.app.DialogFragment;
+import android.app.FragmentManager;
+import android.content.DialogInterface;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * Dialog showing the progress of some work running on other threads. <br />
+ * Workers report through the dialog's {@link ProgressTracker}, at any rate; the bar is
+ * updated at most once per frame with the latest report. Shown through
+ * {@link #showDeferred}, the dialog only appears if the work outlasts the tracker's
+ * grace delay, and then stays at least its minimum show time. <br />
+ * Its button, or backing out of it, cancels the tracker.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class ProgressDialogFragment extends DialogFragment implements DialogInterface.OnClickListener, ProgressTracker.Target {
+	private ProgressTracker mTracker;
+	private ProgressBar mProgressBar;
+	private long mCreateStart;
+	private Runnable mDismisser;
+
+	/**
+	 * Mandatory empty constructor
+	 */
+	public ProgressDialogFragment() {}
+
+	/**
+	 * Use this method to create a new instance of the progress dialog
+	 * @param title The title of the Dialog
+	 * @param message The message of the Dialog, may be null
+	 * @param indeterminate Whether the work starts without a known maximum
+	 * @return a ready to {@link #showDeferred} dialog
+	 */
+	public static ProgressDialogFragment newInstance(String title, String message, boolean indeterminate) {
+		return newInstance(new DialogSpec().setTitle(title).setMessage(message), indeterminate);
+	}
+
+	/**
+	 * Use this method to create a new instance of the progress dialog out of a {@link DialogSpec}. <br />
+	 * Its <i>no</i> text labels the cancel button.
+	 * @param spec The texts of the Dialog
+	 * @param indeterminate Whether the work starts without a known maximum
+	 * @return a ready to {@link #showDeferred} dialog
+	 */
+	public static ProgressDialogFragment newInstance(DialogSpec spec, boolean indeterminate) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
+		ProgressDialogFragment ret = new ProgressDialogFragment();
+
+		ret.mTracker = new ProgressTracker(indeterminate);
+		Bundle args = new Bundle();
+		args.putParcelable(DialogDefines.SPEC_KEY, spec);
+		args.putInt(DialogDefines.PROGRESS_KEY, ret.mTracker.getId());
+		ret.setArguments(args);
+
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
+		return ret;
+	}
+
+	/**
+	 * @return the tracker workers report to; null if the dialog was re-created after its work was over
+	 */
+	public ProgressTracker getTracker() {
+		return mTracker;
+	}
+
+	/**
+	 * Shows the dialog once the tracker's grace delay goes by, unless the work is over by then.
+	 * Callable from any thread and at any time, like {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
+	 * @return the tracker workers report to
+	 * @throws IllegalStateException if the dialog's work is already over, i.e. it has no tracker
+	 */
+	public ProgressTracker showDeferred(final FragmentManager manager, final String tag) {
+		if(mTracker == null) {
+			// e.g. a re-created instance, which has yet to look its tracker up
+			mTracker = ProgressTracker.find(getArguments());
+		}
+		if(mTracker == null) {
+			throw new IllegalStateException("The dialog has no tracker, its work is over; create a new one with newInstance");
+		}
+		final DialogFragment dialog = this;
+		mTracker.showDeferred(new Runnable() {
+			@Override
+			public void run() {
+				PendingDialogsFragment.show(manager, dialog, tag);
+			}
+		});
+		return mTracker;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mTracker = ProgressTracker.find(getArguments());
+		if(mTracker == null) {
+			// the work ended while the dialog was waiting to be shown, or died with the process
+			setShowsDialog(false);
+			dismissAllowingStateLoss();
+			return;
+		}
+		mDismisser = new Runnable() {
+			@Override
+			public void run() {
+				if(isAdded()) {
+					dismissAllowingStateLoss();
+				}
+			}
+		};
+		mTracker.bind(mDismisser);
+	}
+
+	@Override
+	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
+		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+		DialogSpec spec = DialogSpec.from(getArguments());
+		Resources res = getResources();
+		String title = spec.getString(res, DialogSpec.TITLE);
+		String msg = spec.getString(res, DialogSpec.MESSAGE);
+		String no = spec.getString(res, DialogSpec.NO, R.string.cancel);
+
+		long inflateStart = DialogMetrics.begin(DialogMetrics.SPAN_INFLATE);
+		View v = DialogViewPool.obtain(getActivity(), R.layout.progress_dialog_fragment);
+		DialogMetrics.end(DialogMetrics.SPAN_INFLATE, inflateStart);
+		mProgressBar = (ProgressBar) v.findViewById(R.id.prg_progress_dialog);
+		if(msg != null) {
+			TextView message = (TextView) v.findViewById(R.id.txt_progress_dialog);
+			message.setText(msg);
+			message.setVisibility(View.VISIBLE);
+		}
+
+		builder.setView(v);
+		if(title != null) {
+			builder.setTitle(title);
+		}
+		builder.setNegativeButton(no, this);
+
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		Dialog ret = builder.create();
+		ret.setCanceledOnTouchOutside(false);
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
+	}
+
+	@Override
+	public void onProgress(int progress, int max) {
+		if(mProgressBar == null) {
+			return;
+		}
+		if(max <= 0) {
+			mProgressBar.setIndeterminate(true);
+		} else {
+			mProgressBar.setIndeterminate(false);
+			mProgressBar.setMax(max);
+			mProgressBar.setProgress(progress);
+		}
+	}
+
+	/**
+	 * The only button of the dialog cancels the work
+	 */
+	@Override
+	public void onClick(DialogInterface dialog, int which) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_NEGATIVE);
+		if(mTracker != null) {
+			mTracker.cancel();
+		}
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_NEGATIVE, start);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		DialogMetrics.watchFirstFrame(getDialog(), mCreateStart);
+		mCreateStart = 0;
+		if(mTracker != null) {
+			mTracker.attach(this);
+		}
+	}
+
+	@Override
+	public void onStop() {
+		super.onStop();
+		if(mTracker != null) {
+			mTracker.detach(this);
+		}
+	}
+
+	@Override
+	public void onDismiss(DialogInterface dialog) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_DISMISS);
+		super.onDismiss(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_DISMISS, start);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		if(mTracker != null) {
+			mTracker.cancel();
+		}
+	}
+
+	@Override
+	public void onDestroyView() {
+		super.onDestroyView();
+		mProgressBar = null;
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		if(mTracker != null) {
+			mTracker.unbind(mDismisser);
+			// a configuration change re-creates the dialog, which picks the tracker up again
+			if(!getActivity().isChangingConfigurations()) {
+				mTracker.cancel();
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package lib.dialogfragment.dialog.listener;
+
+import java.util.HashMap;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.DialogInterface;
+import android.os.Bundle;
+import android.util.SparseArray;
+
+/**
+ * Registry of dialog listeners, keyed by request code and scoped to an Activity. <br />
+ * A listener handed straight to <i>newInstance</i> lives in that fragment instance only,
+ * so it's gone once the dialog is re-created (e.g. on rotation). A dialog given a
+ * request code instead looks its listener up here when clicked, and the Activity
+ * registers it again on every <i>onCreate</i>:
+ * <pre>
+ * DialogListeners.register(this, DELETE_REQUEST, mDeleteListener);
+ * ConfirmDialogFragment.newInstance("Delete", "Sure?", null).setRequestCode(DELETE_REQUEST).show(...);
+ * </pre>
+ * Every listener of an Activity is dropped when it's destroyed, so neither the listeners
+ * nor the Activity they may point to outlive it. <br />
+ * Must be used from the main thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class DialogListeners {
+	private static final HashMap<Activity, SparseArray<DialogInterface.OnClickListener>> sListeners = new HashMap<Activity, SparseArray<DialogInterface.OnClickListener>>();
+	private static boolean sCallbacksRegistered;
+
+	private DialogListeners() {}
+
+	/**
+	 * @param owner the Activity the listener belongs to
+	 * @param requestCode the request code given to the dialogs
+	 * @param listener the listener; replaces any other one of the same request code
+	 */
+	public static void register(Activity owner, int requestCode, DialogInterface.OnClickListener listener) {
+		if(!sCallbacksRegistered) {
+			sCallbacksRegistered = true;
+			owner.getApplication().registerActivityLifecycleCallbacks(LIFECYCLE_CALLBACKS);
+		}
+		SparseArray<DialogInterface.OnClickListener> listeners = sListeners.get(owner);
+		if(listeners == null) {
+			listeners = new SparseArray<DialogInterface.OnClickListener>();
+			sListeners.put(owner, listeners);
+		}
+		listeners.put(requestCode, listener);
+	}
+
+	public static void unregister(Activity owner, int requestCode) {
+		SparseArray<DialogInterface.OnClickListener> listeners = sListeners.get(owner);
+		if(listeners != null) {
+			listeners.remove(requestCode);
+		}
+	}
+
+	/**
+	 * @return the listener registered by the Activity, or null
+	 */
+	public static DialogInterface.OnClickListener get(Activity owner, int requestCode) {
+		SparseArray<DialogInterface.OnClickListener> listeners = sListeners.get(owner);
+		return listeners != null ? listeners.get(requestCode) : null;
+	}
+
+	private static final Application.ActivityLifecycleCallbacks LIFECYCLE_CALLBACKS = new Application.ActivityLifecycleCallbacks() {
+		@Override
+		public void onActivityDestroyed(Activity activity) {
+			sListeners.remove(activity);
+		}
+
+		@Override
+		public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+		@Override
+		public void onActivityStarted(Activity activity) {}
+
+		@Override
+		public void onActivityResumed(Activity activity) {}
+
+		@Override
+		public void onActivityPaused(Activity activity) {}
+
+		@Override
+		public void onActivityStopped(Activity activity) {}
+
+		@Override
+		public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+	};
+}
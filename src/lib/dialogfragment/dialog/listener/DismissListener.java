@@ -1,7 +1,21 @@
 package lib.dialogfragment.dialog.listener;
 import android.content.DialogInterface;
 
+/**
+ * Listener that just dismisses the dialog. <br />
+ * It keeps no state, so a single instance is shared by every dialog.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
 public class DismissListener implements DialogInterface.OnClickListener {
+	private static final DismissListener sInstance = new DismissListener();
+
+	private DismissListener() {}
+
+	public static DismissListener getInstance() {
+		return sInstance;
+	}
+
 	@Override
 	public void onClick(DialogInterface dialog, int which) {
 		dialog.dismiss();
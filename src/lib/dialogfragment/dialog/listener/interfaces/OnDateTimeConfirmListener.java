@@ -0,0 +1,5 @@
+package lib.dialogfragment.dialog.listener.interfaces;
+
+public interface OnDateTimeConfirmListener {
+	public void onConfirm(long millis);
+}
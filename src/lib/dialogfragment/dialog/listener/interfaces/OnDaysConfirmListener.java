@@ -0,0 +1,7 @@
+package lib.dialogfragment.dialog.listener.interfaces;
+
+import lib.dialogfragment.util.DaySet;
+
+public interface OnDaysConfirmListener {
+	public void onConfirm(DaySet days);
+}
@@ -0,0 +1,5 @@
+package lib.dialogfragment.dialog.listener.interfaces;
+
+public interface OnItemsConfirmListener {
+	public void onConfirm(int[] positions);
+}
@@ -0,0 +1,7 @@
+package lib.dialogfragment.dialog.listener.interfaces;
+
+import android.os.Bundle;
+
+public interface OnSequenceConfirmListener {
+	public void onConfirm(Bundle results);
+}
@@ -0,0 +1,355 @@
+package lib.dialogfragment.dialog.progress;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lib.dialogfragment.defs.DialogDefines;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+/**
+ * Link between some work and the progress dialog showing it. <br />
+ * Workers report through {@link #setProgress(int, int)} as often as they like, from any
+ * thread: each report just overwrites a single atomic slot, and the dialog reads the latest
+ * one at most once per frame (on vsync from API 16, every 16ms before). <br />
+ * The dialog is only shown if the work outlasts the grace delay, and once shown it stays
+ * at least the minimum show time, so short work never flashes a dialog. <br />
+ * Cancelling the dialog is reported back through {@link #isCancelled()} and
+ * {@link #setOnCancelListener(Runnable)}. The tracker outlives the dialog being re-created
+ * on a configuration change, but not the process.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class ProgressTracker {
+	/**
+	 * Default time the work has to last for its dialog to be shown, in milliseconds
+	 */
+	public static final long DEFAULT_GRACE_DELAY = 500;
+	/**
+	 * Default time a shown dialog stays, in milliseconds
+	 */
+	public static final long DEFAULT_MIN_SHOW_TIME = 500;
+
+	private static final long FRAME_MILLIS = 16;
+	private static final boolean VSYNC_SUPPORTED = Build.VERSION.SDK_INT >= 16;
+	private static final int RUNNING = 0;
+	private static final int FINISHED = 1;
+	private static final int CANCELLED = 2;
+
+	private static final AtomicInteger sNextId = new AtomicInteger(1);
+	private static final HashMap<Integer, ProgressTracker> sLive = new HashMap<Integer, ProgressTracker>();
+	private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * What the progress is shown on. Meant for the dialogs themselves.
+	 */
+	public interface Target {
+		/**
+		 * Called on the main thread with the latest progress
+		 * @param max the maximum, 0 if the progress is indeterminate
+		 */
+		public void onProgress(int progress, int max);
+	}
+
+	private final int mId;
+	// max in the high half, progress in the low one
+	private final AtomicLong mSlot;
+	private final AtomicBoolean mScheduled = new AtomicBoolean();
+	private final AtomicInteger mState = new AtomicInteger(RUNNING);
+	private volatile Target mTarget;
+	private volatile long mGraceDelay = DEFAULT_GRACE_DELAY;
+	private volatile long mMinShowTime = DEFAULT_MIN_SHOW_TIME;
+	private volatile Runnable mOnCancel;
+	// main thread only
+	private Runnable mShow;
+	private Runnable mDismisser;
+	private long mShownAt;
+	private Object mFrameCallback;
+
+	private final Runnable mApply = new Runnable() {
+		@Override
+		public void run() {
+			mScheduled.set(false);
+			Target target = mTarget;
+			if(target != null) {
+				long slot = mSlot.get();
+				target.onProgress((int) slot, (int) (slot >>> 32));
+			}
+		}
+	};
+
+	private final Runnable mPostFrame = new Runnable() {
+		@Override
+		public void run() {
+			if(mFrameCallback == null) {
+				mFrameCallback = Vsync.callback(mApply);
+			}
+			Vsync.post(mFrameCallback);
+		}
+	};
+
+	private final Runnable mDismiss = new Runnable() {
+		@Override
+		public void run() {
+			synchronized(sLive) {
+				sLive.remove(mId);
+			}
+			if(mDismisser != null) {
+				mDismisser.run();
+				mDismisser = null;
+			}
+			mTarget = null;
+		}
+	};
+
+	/**
+	 * @param indeterminate whether the work starts without a known maximum
+	 */
+	public ProgressTracker(boolean indeterminate) {
+		mId = sNextId.getAndIncrement();
+		mSlot = new AtomicLong(pack(0, indeterminate ? 0 : 100));
+		synchronized(sLive) {
+			sLive.put(mId, this);
+		}
+	}
+
+	/**
+	 * Finds the tracker of a dialog, by the id in its arguments
+	 * @param args the dialog's arguments, may be null
+	 * @return the tracker, or null if its work is over
+	 */
+	public static ProgressTracker find(Bundle args) {
+		if(args == null || !args.containsKey(DialogDefines.PROGRESS_KEY)) {
+			return null;
+		}
+		synchronized(sLive) {
+			return sLive.get(args.getInt(DialogDefines.PROGRESS_KEY));
+		}
+	}
+
+	public int getId() {
+		return mId;
+	}
+
+	/**
+	 * @param millis how long the work has to last for its dialog to be shown
+	 * @return this same tracker
+	 */
+	public ProgressTracker setGraceDelay(long millis) {
+		mGraceDelay = millis;
+		return this;
+	}
+
+	/**
+	 * @param millis how long a shown dialog stays, even if the work is over before
+	 * @return this same tracker
+	 */
+	public ProgressTracker setMinShowTime(long millis) {
+		mMinShowTime = millis;
+		return this;
+	}
+
+	/**
+	 * @param listener run on the main thread if the dialog gets cancelled
+	 * @return this same tracker
+	 */
+	public ProgressTracker setOnCancelListener(Runnable listener) {
+		mOnCancel = listener;
+		return this;
+	}
+
+	/**
+	 * Reports the progress of the work, from any thread and at any rate
+	 */
+	public void setProgress(int progress, int max) {
+		mSlot.set(pack(progress, max));
+		schedule();
+	}
+
+	/**
+	 * Reports the progress of the work, keeping the last maximum
+	 */
+	public void setProgress(int progress) {
+		long slot;
+		do {
+			slot = mSlot.get();
+		} while(!mSlot.compareAndSet(slot, (slot & 0xffffffff00000000L) | (progress & 0xffffffffL)));
+		schedule();
+	}
+
+	/**
+	 * Switches the dialog to an indeterminate progress, until the next {@link #setProgress(int, int)}
+	 */
+	public void setIndeterminate() {
+		mSlot.set(pack(0, 0));
+		schedule();
+	}
+
+	/**
+	 * @return whether the dialog was cancelled; workers should poll it and bail out
+	 */
+	public boolean isCancelled() {
+		return mState.get() == CANCELLED;
+	}
+
+	/**
+	 * Reports the work is over, from any thread. The dialog is never shown if it wasn't
+	 * yet, or it's taken down once it has been shown for the minimum show time.
+	 * @return false if the tracker was already finished or cancelled
+	 */
+	public boolean finish() {
+		if(!mState.compareAndSet(RUNNING, FINISHED)) {
+			return false;
+		}
+		sHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				cancelShow();
+				long left = mShownAt == 0 ? 0 : mShownAt + mMinShowTime - SystemClock.uptimeMillis();
+				if(left > 0) {
+					sHandler.postDelayed(mDismiss, left);
+				} else {
+					mDismiss.run();
+				}
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Cancels the work, from any thread, taking the dialog down right away
+	 * @return false if the tracker was already finished or cancelled
+	 */
+	public boolean cancel() {
+		if(!mState.compareAndSet(RUNNING, CANCELLED)) {
+			return false;
+		}
+		sHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				cancelShow();
+				mDismiss.run();
+				Runnable listener = mOnCancel;
+				if(listener != null) {
+					listener.run();
+				}
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Runs the given show after the grace delay, unless the work is over by then.
+	 * Meant for the dialogs themselves.
+	 */
+	public void showDeferred(final Runnable show) {
+		sHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if(mState.get() != RUNNING) {
+					return;
+				}
+				cancelShow();
+				mShow = new Runnable() {
+					@Override
+					public void run() {
+						mShow = null;
+						if(mState.get() == RUNNING) {
+							mShownAt = SystemClock.uptimeMillis();
+							show.run();
+						}
+					}
+				};
+				sHandler.postDelayed(mShow, mGraceDelay);
+			}
+		});
+	}
+
+	/**
+	 * Sets what to run to take the dialog down once the work is over.
+	 * To be called on the main thread. Meant for the dialogs themselves.
+	 */
+	public void bind(Runnable dismisser) {
+		mDismisser = dismisser;
+	}
+
+	/**
+	 * Clears the dismisser set by {@link #bind}, if it's still the given one
+	 */
+	public void unbind(Runnable dismisser) {
+		if(mDismisser == dismisser) {
+			mDismisser = null;
+		}
+	}
+
+	/**
+	 * Has the progress shown on the target from now on, starting with the latest one.
+	 * To be called on the main thread. Meant for the dialogs themselves.
+	 */
+	public void attach(Target target) {
+		if(mShownAt == 0) {
+			// shown without going through the grace delay
+			mShownAt = SystemClock.uptimeMillis();
+		}
+		mTarget = target;
+		mApply.run();
+	}
+
+	/**
+	 * Stops showing the progress on the target, if it's still the given one
+	 */
+	public void detach(Target target) {
+		if(mTarget == target) {
+			mTarget = null;
+		}
+	}
+
+	private void cancelShow() {
+		if(mShow != null) {
+			sHandler.removeCallbacks(mShow);
+			mShow = null;
+		}
+	}
+
+	/**
+	 * Has the slot applied on the next frame, unless it already is or nothing shows it
+	 */
+	private void schedule() {
+		if(mTarget == null || !mScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		if(VSYNC_SUPPORTED) {
+			sHandler.post(mPostFrame);
+		} else {
+			sHandler.postDelayed(mApply, FRAME_MILLIS);
+		}
+	}
+
+	private static long pack(int progress, int max) {
+		return ((long) max << 32) | (progress & 0xffffffffL);
+	}
+
+	/**
+	 * Keeps {@link Choreographer} out of the classes loaded before API 16
+	 */
+	private static final class Vsync {
+		static Object callback(final Runnable runnable) {
+			return new Choreographer.FrameCallback() {
+				@Override
+				public void doFrame(long frameTimeNanos) {
+					runnable.run();
+				}
+			};
+		}
+
+		static void post(Object callback) {
+			Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) callback);
+		}
+	}
+}
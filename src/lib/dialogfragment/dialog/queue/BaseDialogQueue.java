@@ -0,0 +1,433 @@
+package lib.dialogfragment.dialog.queue;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+import lib.dialogfragment.R;
+import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.metrics.DialogMetrics;
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.Application;
+import android.app.Dialog;
+import android.content.res.Resources;
+import android.os.Bundle;
+
+/**
+ * Serializes the presentation of dialogs: only one is shown at a time and the rest wait in line,
+ * highest priority first and, within the same priority, in arrival order. <br />
+ * Requests carrying the same key while one of them is pending or showing get merged into it,
+ * with an occurrence count appended to its message, instead of stacking a new dialog. <br />
+ * A request of at least the {@link #setPreemptingPriority(int) preempting priority} takes the
+ * place of a less important dialog that's showing; that one goes back in line, same instance
+ * and same arguments, and is shown again later, room permitting. <br />
+ * The backlog is bounded; once full, the {@link DropPolicy} decides what gets discarded.
+ * Every operation is O(log n) on the backlog size. <br />
+ * Once the Activity saved its state nothing is shown or taken down, as that would throw;
+ * the queue holds still until the Activity resumes. <br />
+ * This is the flavor-agnostic core, use <i>lib.dialogfragment.dialog.DialogQueue</i> or
+ * <i>lib.dialogfragment.dialog.support.DialogQueue</i>. Must be used from the main thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ * @param <F> the DialogFragment flavor
+ */
+public abstract class BaseDialogQueue<F> {
+	public static final int DEFAULT_CAPACITY = 16;
+	public static final int PRIORITY_LOW = -10;
+	public static final int PRIORITY_NORMAL = 0;
+	public static final int PRIORITY_HIGH = 10;
+	public static final int PRIORITY_CRITICAL = 20;
+	private static final String TAG_PREFIX = "_dialog_queue_";
+
+	/**
+	 * What to do with a new request once the backlog is full
+	 */
+	public enum DropPolicy {
+		/** discard the request that has been waiting the longest among the least important ones */
+		DROP_OLDEST,
+		/** discard the incoming request */
+		REJECT_NEW
+	}
+
+	private final Activity mActivity;
+	private final Resources mResources;
+	private final int mCapacity;
+	private final DropPolicy mPolicy;
+	private final TreeSet<Request<F>> mPending = new TreeSet<Request<F>>(new Comparator<Request<F>>() {
+		@Override
+		public int compare(Request<F> a, Request<F> b) {
+			if(a.priority != b.priority) {
+				return a.priority > b.priority ? -1 : 1;
+			}
+			return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+		}
+	});
+	private final HashMap<String, Request<F>> mByKey = new HashMap<String, Request<F>>();
+	private final Request<F> mProbe = new Request<F>(null, null, null, 0, -1);
+	private int mPreemptingPriority = PRIORITY_CRITICAL;
+	private Request<F> mShowing;
+	private long mSequence;
+	private int mDropped;
+	private int mPeakPending;
+	private int mShownCount;
+	private long mTotalWaitNanos;
+	private long mMaxWaitNanos;
+	private boolean mStateSaved;
+
+	protected BaseDialogQueue(Activity activity, int capacity, DropPolicy policy) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		mActivity = activity;
+		mResources = activity.getResources();
+		mCapacity = capacity;
+		mPolicy = policy;
+		activity.getApplication().registerActivityLifecycleCallbacks(mLifecycleCallbacks);
+	}
+
+	/**
+	 * Shows the dialog, or queues it with {@link #PRIORITY_NORMAL} while another one is showing
+	 * @param dialog the dialog to show
+	 * @return false if the dialog was discarded because the backlog is full
+	 */
+	public boolean enqueue(F dialog) {
+		return enqueue(null, dialog, PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Shows the dialog, or queues it with {@link #PRIORITY_NORMAL} while another one is showing
+	 * @param key identity of the dialog for de-duplication; null to never merge it
+	 * @param dialog the dialog to show
+	 * @return false if the dialog was discarded because the backlog is full
+	 */
+	public boolean enqueue(String key, F dialog) {
+		return enqueue(key, dialog, PRIORITY_NORMAL);
+	}
+
+	/**
+	 * Shows the dialog, or queues it while another one is showing. <br />
+	 * If a dialog with the same key is already pending or showing, this one is dropped
+	 * and that one's message gets an occurrence count instead; a pending one also takes
+	 * the higher of both priorities.
+	 * @param key identity of the dialog for de-duplication; null to never merge it
+	 * @param dialog the dialog to show
+	 * @param priority how important the dialog is, e.g. {@link #PRIORITY_CRITICAL}
+	 * @return false if the dialog was discarded because the backlog is full
+	 */
+	public boolean enqueue(String key, F dialog, int priority) {
+		if(key != null) {
+			Request<F> same = mByKey.get(key);
+			if(same != null) {
+				same.count++;
+				applyCount(same);
+				if(same != mShowing && priority > same.priority) {
+					mPending.remove(same);
+					same.priority = priority;
+					mPending.add(same);
+					preemptFor(same);
+				}
+				return true;
+			}
+		}
+		if(mPending.size() >= mCapacity && mPolicy == DropPolicy.REJECT_NEW) {
+			mDropped++;
+			return false;
+		}
+		if(!makeRoomFor(priority)) {
+			return false;
+		}
+		Request<F> request = new Request<F>(key, dialog, TAG_PREFIX + mSequence, priority, mSequence++);
+		Bundle args = getArguments(dialog);
+		if(args != null) {
+			request.message = DialogSpec.from(args).getString(mResources, DialogSpec.MESSAGE);
+		}
+		queue(request);
+		if(key != null) {
+			mByKey.put(key, request);
+		}
+		if(!preemptFor(request)) {
+			showNext();
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the lowest priority that can take the place of a less important dialog already showing
+	 * @param priority defaults to {@link #PRIORITY_CRITICAL}
+	 */
+	public void setPreemptingPriority(int priority) {
+		mPreemptingPriority = priority;
+	}
+
+	/**
+	 * Discards every pending dialog and stops following the Activity's lifecycle
+	 */
+	public void release() {
+		clear();
+		mActivity.getApplication().unregisterActivityLifecycleCallbacks(mLifecycleCallbacks);
+	}
+
+	/**
+	 * Discards every pending dialog. The one showing, if any, stays.
+	 */
+	public void clear() {
+		while(!mPending.isEmpty()) {
+			forget(mPending.pollFirst());
+		}
+	}
+
+	/**
+	 * @return how many dialogs are waiting in line, i.e. the queue depth
+	 */
+	public int getPendingCount() {
+		return mPending.size();
+	}
+
+	/**
+	 * @return the deepest the queue has been
+	 */
+	public int getPeakPendingCount() {
+		return mPeakPending;
+	}
+
+	/**
+	 * @return how many dialogs were discarded because the backlog was full
+	 */
+	public int getDroppedCount() {
+		return mDropped;
+	}
+
+	/**
+	 * @return the average time dialogs waited in line before showing, in nanoseconds
+	 */
+	public long getAverageWaitNanos() {
+		return mShownCount == 0 ? 0 : mTotalWaitNanos / mShownCount;
+	}
+
+	/**
+	 * @return the longest time a dialog waited in line before showing, in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return mMaxWaitNanos;
+	}
+
+	public boolean isShowing() {
+		return mShowing != null;
+	}
+
+	/**
+	 * Subclasses call this whenever the dialogs of their FragmentManager may have changed
+	 */
+	protected void onDialogsChanged() {
+		if(mShowing == null || isShown(mShowing.tag)) {
+			return;
+		}
+		Request<F> gone = mShowing;
+		mShowing = null;
+		if(gone.preempted && makeRoomFor(gone.priority)) {
+			gone.preempted = false;
+			queue(gone);
+		} else {
+			forget(gone);
+		}
+		showNext();
+	}
+
+	/**
+	 * Shows the dialog on its own back stack entry, so its dismissal triggers {@link #onDialogsChanged()}
+	 */
+	protected abstract void show(F dialog, String tag);
+
+	/**
+	 * Dismisses a dialog shown through {@link #show}
+	 */
+	protected abstract void dismiss(F dialog);
+
+	protected abstract boolean isShown(String tag);
+
+	protected abstract Bundle getArguments(F dialog);
+
+	protected abstract Dialog getDialog(F dialog);
+
+	private void queue(Request<F> request) {
+		request.enqueuedAt = System.nanoTime();
+		mPending.add(request);
+		if(mPending.size() > mPeakPending) {
+			mPeakPending = mPending.size();
+		}
+	}
+
+	private void showNext() {
+		if(mShowing != null || mPending.isEmpty() || mStateSaved) {
+			return;
+		}
+		mShowing = mPending.pollFirst();
+		long wait = System.nanoTime() - mShowing.enqueuedAt;
+		mShownCount++;
+		mTotalWaitNanos += wait;
+		if(wait > mMaxWaitNanos) {
+			mMaxWaitNanos = wait;
+		}
+		if(DialogMetrics.isEnabled()) {
+			DialogMetrics.record(DialogMetrics.SPAN_QUEUE_WAIT, mShowing.enqueuedAt);
+		}
+		show(mShowing.dialog, mShowing.tag);
+	}
+
+	/**
+	 * Takes the showing dialog down when the request outranks it.
+	 * It gets back in line once its dismissal goes through.
+	 * @return whether the showing dialog is being preempted
+	 */
+	private boolean preemptFor(Request<F> request) {
+		if(mShowing == null) {
+			return false;
+		}
+		if(mShowing.preempted) {
+			return true;
+		}
+		if(request.priority < mPreemptingPriority || request.priority <= mShowing.priority) {
+			return false;
+		}
+		mShowing.preempted = true;
+		// otherwise it's taken down once the Activity resumes
+		if(!mStateSaved) {
+			dismiss(mShowing.dialog);
+		}
+		return true;
+	}
+
+	private void onResumed() {
+		mStateSaved = false;
+		if(mShowing != null && mShowing.preempted) {
+			dismiss(mShowing.dialog);
+		} else {
+			// the showing dialog may have gone while the Activity was away
+			onDialogsChanged();
+			showNext();
+		}
+	}
+
+	/**
+	 * Discards the request that has been waiting the longest among the least important ones
+	 * if the backlog is full, unless a request of the given priority would be the least important of all
+	 * @return whether a request of the given priority fits in the backlog
+	 */
+	private boolean makeRoomFor(int priority) {
+		if(mPending.size() < mCapacity) {
+			return true;
+		}
+		mDropped++;
+		Request<F> oldest = oldestOf(mPending.last().priority);
+		if(priority < oldest.priority) {
+			return false;
+		}
+		mPending.remove(oldest);
+		forget(oldest);
+		return true;
+	}
+
+	/**
+	 * @return the request that has been waiting the longest among those of the given priority
+	 */
+	private Request<F> oldestOf(int priority) {
+		mProbe.priority = priority;
+		return mPending.ceiling(mProbe);
+	}
+
+	/**
+	 * Writes the occurrence count on the request's message, and on its dialog if it's showing
+	 */
+	private void applyCount(Request<F> request) {
+		if(request.message == null) {
+			return;
+		}
+		String message = mResources.getString(R.string.occurrences, request.message, request.count);
+		Bundle args = getArguments(request.dialog);
+		if(args != null) {
+			if(request.spec == null) {
+				DialogSpec spec = args.getParcelable(DialogDefines.SPEC_KEY);
+				if(spec != null) {
+					// a copy, the caller may be reusing its spec for other dialogs
+					request.spec = new DialogSpec(spec);
+					args.putParcelable(DialogDefines.SPEC_KEY, request.spec);
+				}
+			}
+			if(request.spec != null) {
+				request.spec.setMessage(message);
+			} else {
+				args.putString(DialogDefines.MESSAGE_KEY, message);
+			}
+		}
+		if(request == mShowing) {
+			Dialog dialog = getDialog(request.dialog);
+			if(dialog instanceof AlertDialog) {
+				((AlertDialog) dialog).setMessage(message);
+			}
+		}
+	}
+
+	private void forget(Request<F> request) {
+		if(request.key != null && mByKey.get(request.key) == request) {
+			mByKey.remove(request.key);
+		}
+	}
+
+	private final Application.ActivityLifecycleCallbacks mLifecycleCallbacks = new Application.ActivityLifecycleCallbacks() {
+		@Override
+		public void onActivityResumed(Activity activity) {
+			if(activity == mActivity) {
+				onResumed();
+			}
+		}
+
+		@Override
+		public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+			if(activity == mActivity) {
+				mStateSaved = true;
+			}
+		}
+
+		@Override
+		public void onActivityStopped(Activity activity) {
+			if(activity == mActivity) {
+				mStateSaved = true;
+			}
+		}
+
+		@Override
+		public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+		@Override
+		public void onActivityStarted(Activity activity) {}
+
+		@Override
+		public void onActivityPaused(Activity activity) {}
+
+		@Override
+		public void onActivityDestroyed(Activity activity) {}
+	};
+
+	private static class Request<F> {
+		final String key;
+		final F dialog;
+		final String tag;
+		final long sequence;
+		int priority;
+		String message;
+		DialogSpec spec;
+		int count = 1;
+		long enqueuedAt;
+		boolean preempted;
+
+		Request(String key, F dialog, String tag, int priority, long sequence) {
+			this.key = key;
+			this.dialog = dialog;
+			this.tag = tag;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -0,0 +1,423 @@
+package lib.dialogfragment.dialog.result;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.util.MainThreadBatcher;
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Handle to the result of a dialog shown through <i>showForResult</i>. <br />
+ * It completes once, on the main thread, either with the dialog's value or cancelled
+ * (dialog backed out of, denied, dismissed or timed out). Callbacks can be chained on it
+ * with {@link #then(Callback)}, transformed with {@link #map(Function)}, or handed to
+ * background work with {@link #then(Executor, Callback)}; worker threads can also block
+ * on {@link #get()}. <br />
+ * The handle outlives the dialog being re-created on a configuration change, but not
+ * the process. Dialogs tie themselves to it through {@link #attach}.
+ * @author SleeBee (Federico Mendez)
+ *
+ * @param <T> the type of the dialog's value
+ */
+public class DialogResult<T> {
+	/**
+	 * Tag prefix of the dialogs shown for a result
+	 */
+	public static final String TAG_PREFIX = "_dialog_result_";
+
+	private static final int PENDING = 0;
+	private static final int DONE = 1;
+	private static final int CANCELLED = 2;
+
+	private static final AtomicInteger sNextId = new AtomicInteger(1);
+	private static final HashMap<Integer, DialogResult<?>> sPending = new HashMap<Integer, DialogResult<?>>();
+	private static final Handler sHandler = new Handler(Looper.getMainLooper());
+	private static final Binding<Object> NO_BINDING = new Binding<Object>(null, null);
+
+	public interface Callback<T> {
+		public void onResult(T value);
+
+		public void onCancel();
+	}
+
+	public interface Function<T, R> {
+		public R apply(T value);
+	}
+
+	private final int mId;
+	// guarded by this
+	private int mState = PENDING;
+	private T mValue;
+	private ArrayList<Callback<? super T>> mCallbacks;
+	private ArrayList<Executor> mExecutors;
+	private Runnable mDismisser;
+	private Runnable mTimeout;
+
+	public DialogResult() {
+		mId = sNextId.getAndIncrement();
+		synchronized(sPending) {
+			sPending.put(mId, this);
+		}
+	}
+
+	/**
+	 * Finds the pending handle of a dialog, by the id in its arguments
+	 * @param args the dialog's arguments, may be null
+	 * @return the handle, or null if the dialog wasn't shown for a result or it's already complete
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> DialogResult<T> find(Bundle args) {
+		if(args == null || !args.containsKey(DialogDefines.RESULT_KEY)) {
+			return null;
+		}
+		synchronized(sPending) {
+			return (DialogResult<T>) sPending.get(args.getInt(DialogDefines.RESULT_KEY));
+		}
+	}
+
+	/**
+	 * Ties a dialog to the handle it was shown for, which dismisses it if cancelled
+	 * meanwhile. To be called from the dialog's <i>onCreate</i>.
+	 * @param dialog the dialog, whose arguments hold the id of the handle if any
+	 * @return the dialog's side of the handle; one doing nothing if it wasn't shown for a result
+	 */
+	public static <T> Binding<T> attach(final android.app.DialogFragment dialog) {
+		DialogResult<T> result = find(dialog.getArguments());
+		if(result == null) {
+			return none();
+		}
+		return new Binding<T>(result, new Runnable() {
+			@Override
+			public void run() {
+				if(dialog.isAdded()) {
+					dialog.dismissAllowingStateLoss();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Same as {@link #attach(android.app.DialogFragment)}, for support (v4) dialogs
+	 */
+	public static <T> Binding<T> attach(final android.support.v4.app.DialogFragment dialog) {
+		DialogResult<T> result = find(dialog.getArguments());
+		if(result == null) {
+			return none();
+		}
+		return new Binding<T>(result, new Runnable() {
+			@Override
+			public void run() {
+				if(dialog.isAdded()) {
+					dialog.dismissAllowingStateLoss();
+				}
+			}
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Binding<T> none() {
+		return (Binding<T>) NO_BINDING;
+	}
+
+	public int getId() {
+		return mId;
+	}
+
+	/**
+	 * Completes the handle with the dialog's value
+	 * @return false if it was already complete
+	 */
+	public boolean complete(T value) {
+		return finish(DONE, value);
+	}
+
+	/**
+	 * Completes the handle without a value, dismissing the dialog if it's still showing
+	 * @return false if it was already complete
+	 */
+	public boolean cancel() {
+		return finish(CANCELLED, null);
+	}
+
+	public synchronized boolean isDone() {
+		return mState != PENDING;
+	}
+
+	public synchronized boolean isCancelled() {
+		return mState == CANCELLED;
+	}
+
+	/**
+	 * Cancels the handle unless it completes within the given time
+	 * @return this same handle
+	 */
+	public DialogResult<T> timeout(long delay, TimeUnit unit) {
+		Runnable timeout = new Runnable() {
+			@Override
+			public void run() {
+				cancel();
+			}
+		};
+		synchronized(this) {
+			if(mState != PENDING) {
+				return this;
+			}
+			if(mTimeout != null) {
+				sHandler.removeCallbacks(mTimeout);
+			}
+			mTimeout = timeout;
+		}
+		sHandler.postDelayed(timeout, unit.toMillis(delay));
+		return this;
+	}
+
+	/**
+	 * Runs the callback on the main thread once the handle completes,
+	 * right away if it already is
+	 * @return this same handle
+	 */
+	public DialogResult<T> then(Callback<? super T> callback) {
+		return then(null, callback);
+	}
+
+	/**
+	 * Runs the callback on the executor once the handle completes
+	 * @param executor where to run the callback; null for the main thread
+	 * @return this same handle
+	 */
+	public DialogResult<T> then(Executor executor, Callback<? super T> callback) {
+		synchronized(this) {
+			if(mState == PENDING) {
+				if(mCallbacks == null) {
+					mCallbacks = new ArrayList<Callback<? super T>>(2);
+					mExecutors = new ArrayList<Executor>(2);
+				}
+				mCallbacks.add(callback);
+				mExecutors.add(executor);
+				return this;
+			}
+		}
+		dispatch(executor, callback);
+		return this;
+	}
+
+	/**
+	 * @return a handle completing with the function applied to this one's value,
+	 * whose cancellation cancels this one too
+	 */
+	public <R> DialogResult<R> map(final Function<? super T, ? extends R> function) {
+		final DialogResult<R> ret = new DialogResult<R>();
+		ret.bind(new Runnable() {
+			@Override
+			public void run() {
+				cancel();
+			}
+		});
+		then(new Callback<T>() {
+			@Override
+			public void onResult(T value) {
+				ret.complete(function.apply(value));
+			}
+
+			@Override
+			public void onCancel() {
+				ret.cancel();
+			}
+		});
+		return ret;
+	}
+
+	/**
+	 * Blocks until the handle completes. Must not be called from the main thread.
+	 * @throws CancellationException if the handle was cancelled
+	 */
+	public T get() throws InterruptedException {
+		checkNotMainThread();
+		synchronized(this) {
+			while(mState == PENDING) {
+				wait();
+			}
+			return value();
+		}
+	}
+
+	/**
+	 * Blocks until the handle completes or the time runs out. Must not be called from the main thread.
+	 * @throws CancellationException if the handle was cancelled
+	 * @throws TimeoutException if the time ran out first; the handle stays pending
+	 */
+	public T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+		checkNotMainThread();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized(this) {
+			while(mState == PENDING) {
+				long left = deadline - System.nanoTime();
+				if(left <= 0) {
+					throw new TimeoutException();
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, left);
+			}
+			return value();
+		}
+	}
+
+	/**
+	 * Sets what to run to take the dialog down if the handle gets cancelled
+	 * while the dialog is showing. Meant for the dialogs themselves.
+	 */
+	public synchronized void bind(Runnable dismisser) {
+		if(mState == PENDING) {
+			mDismisser = dismisser;
+		}
+	}
+
+	/**
+	 * Clears the dismisser set by {@link #bind}, if it's still the given one
+	 */
+	public synchronized void unbind(Runnable dismisser) {
+		if(mDismisser == dismisser) {
+			mDismisser = null;
+		}
+	}
+
+	/**
+	 * A dialog's side of its handle, made by {@link DialogResult#attach}. Without a handle
+	 * every method does nothing, so dialogs can call them whether shown for a result or not.
+	 * @param <T> the type of the dialog's value
+	 */
+	public static final class Binding<T> {
+		private final DialogResult<T> mResult;
+		private final Runnable mDismisser;
+
+		Binding(DialogResult<T> result, Runnable dismisser) {
+			mResult = result;
+			mDismisser = dismisser;
+			if(result != null) {
+				result.bind(dismisser);
+			}
+		}
+
+		/**
+		 * Completes the handle with the dialog's value
+		 */
+		public void complete(T value) {
+			if(mResult != null) {
+				mResult.complete(value);
+			}
+		}
+
+		/**
+		 * Cancels the handle; for the dialog being denied or backed out of
+		 */
+		public void cancel() {
+			if(mResult != null) {
+				mResult.cancel();
+			}
+		}
+
+		/**
+		 * To be called from the dialog's <i>onDestroy</i>: cancels the handle, unless the
+		 * dialog is only being re-created for a configuration change, which attaches again
+		 * @param activity the dialog's Activity
+		 */
+		public void detach(Activity activity) {
+			if(mResult == null) {
+				return;
+			}
+			mResult.unbind(mDismisser);
+			if(!activity.isChangingConfigurations()) {
+				mResult.cancel();
+			}
+		}
+	}
+
+	private T value() {
+		if(mState == CANCELLED) {
+			throw new CancellationException();
+		}
+		return mValue;
+	}
+
+	private boolean finish(int state, T value) {
+		ArrayList<Callback<? super T>> callbacks;
+		ArrayList<Executor> executors;
+		Runnable dismisser;
+		synchronized(this) {
+			if(mState != PENDING) {
+				return false;
+			}
+			mState = state;
+			mValue = value;
+			callbacks = mCallbacks;
+			executors = mExecutors;
+			dismisser = mDismisser;
+			mCallbacks = null;
+			mExecutors = null;
+			mDismisser = null;
+			if(mTimeout != null) {
+				sHandler.removeCallbacks(mTimeout);
+				mTimeout = null;
+			}
+			notifyAll();
+		}
+		synchronized(sPending) {
+			sPending.remove(mId);
+		}
+		if(state == CANCELLED && dismisser != null) {
+			runOnMainThread(dismisser);
+		}
+		if(callbacks != null) {
+			for(int i = 0; i < callbacks.size(); i++) {
+				dispatch(executors.get(i), callbacks.get(i));
+			}
+		}
+		return true;
+	}
+
+	private void dispatch(Executor executor, final Callback<? super T> callback) {
+		final boolean cancelled;
+		final T value;
+		synchronized(this) {
+			cancelled = mState == CANCELLED;
+			value = mValue;
+		}
+		Runnable run = new Runnable() {
+			@Override
+			public void run() {
+				if(cancelled) {
+					callback.onCancel();
+				} else {
+					callback.onResult(value);
+				}
+			}
+		};
+		if(executor != null) {
+			executor.execute(run);
+		} else {
+			runOnMainThread(run);
+		}
+	}
+
+	private static void runOnMainThread(Runnable runnable) {
+		if(MainThreadBatcher.isMainThread()) {
+			runnable.run();
+		} else {
+			MainThreadBatcher.post(runnable);
+		}
+	}
+
+	private static void checkNotMainThread() {
+		if(MainThreadBatcher.isMainThread()) {
+			throw new IllegalStateException("get() would block the main thread, use then() instead");
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package lib.dialogfragment.dialog.support;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+import lib.dialogfragment.R;
+import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.dialog.listener.DialogListeners;
+import lib.dialogfragment.dialog.listener.DismissListener;
+import lib.dialogfragment.dialog.listener.interfaces.OnDateTimeConfirmListener;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.util.ButtonLabels;
+import lib.dialogfragment.util.CalendarCache;
+import lib.dialogfragment.util.DaySet;
+import lib.dialogfragment.util.DialogViewPool;
+import lib.dialogfragment.util.EpochDay;
+import lib.dialogfragment.widget.MonthView;
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.support.v4.app.DialogFragment;
+import android.support.v4.app.FragmentManager;
+import android.text.format.DateFormat;
+import android.view.View;
+import android.widget.TimePicker;
+
+/**
+ * Date and time picker in a single dialog: the month grid of {@link CalendarDialogFragment}
+ * with a {@link TimePicker} under it, so picking both takes one dialog instead of two. <br />
+ * Like the calendar, each dialog keeps its own state as plain numbers, an epoch day and
+ * the minutes into it; the time zone is only looked at to split the starting instant,
+ * and to put the picked date and time back together, once, on confirm. The result is
+ * handed back in milliseconds since the epoch.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class DateTimeDialogFragment extends DialogFragment implements DialogInterface.OnClickListener, MonthView.OnDateChangeListener, TimePicker.OnTimeChangedListener {
+	private long mDay;
+	private int mMinuteOfDay;
+	private MonthView mMonthView;
+	private DialogInterface.OnClickListener mListener;
+	private OnDateTimeConfirmListener mCallback;
+	private long mCreateStart;
+	private DialogResult.Binding<Long> mResult;
+
+	/**
+	 * Mandatory empty constructor
+	 */
+	public DateTimeDialogFragment() {}
+
+	/**
+	 * Use this method to create a new instance of the date and time dialog. <br />
+	 * This signature lets you define almost every aspect of your dialog.
+	 * @param title The title of the Dialog
+	 * @param yesButton Text to be displayed on the confirm button
+	 * @param noButton Text to be displayed on the deny button
+	 * @param listener user-defined callback for the confirm button
+	 * @param millis starting date and time, in milliseconds since the epoch
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static DateTimeDialogFragment newInstance(String title, String yesButton, String noButton, DialogInterface.OnClickListener listener, long millis) {
+		return newInstance(new DialogSpec().setTitle(title).setYes(yesButton).setNo(noButton), listener, millis);
+	}
+
+	/**
+	 * Use this method to create a new instance of the date and time dialog out of a {@link DialogSpec}. <br />
+	 * Its texts can be either plain strings or string resources, which are resolved
+	 * when the dialog is shown.
+	 * @param spec The texts of the Dialog
+	 * @param listener user-defined callback for the confirm button
+	 * @param millis starting date and time, in milliseconds since the epoch
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static DateTimeDialogFragment newInstance(DialogSpec spec, DialogInterface.OnClickListener listener, long millis) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
+		DateTimeDialogFragment ret = new DateTimeDialogFragment();
+
+		Bundle args = new Bundle();
+		args.putParcelable(DialogDefines.SPEC_KEY, spec);
+		if(listener != null) {
+			ret.mListener = listener;
+		}
+		TimeZone zone = CalendarCache.getTimeZone();
+		args.putLong(DialogDefines.DATE_KEY, EpochDay.fromMillis(millis, zone));
+		args.putInt(DialogDefines.TIME_KEY, EpochDay.minuteOfDay(millis, zone));
+		ret.setArguments(args);
+
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
+		return ret;
+	}
+
+	/**
+	 * Use this method to create a new instance of the date and time dialog
+	 * while using the Resources <i>yes</i> and <i>no</i> strings
+	 * @param title The title of the Dialog
+	 * @param listener user-defined callback for the confirm button
+	 * @param millis starting date and time, in milliseconds since the epoch
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static DateTimeDialogFragment newInstance(String title, DialogInterface.OnClickListener listener, long millis) {
+		return newInstance(title, null, null, listener, millis);
+	}
+
+	/**
+	 * Use this method to create a new instance of the date and time dialog, starting now,
+	 * while using the Resources <i>yes</i> and <i>no</i> strings
+	 * @param title The title of the Dialog
+	 * @param listener user-defined callback for the confirm button
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static DateTimeDialogFragment newInstance(String title, DialogInterface.OnClickListener listener) {
+		return newInstance(title, null, null, listener, System.currentTimeMillis());
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		CalendarCache.watch(getActivity());
+		Bundle state = savedInstanceState != null && savedInstanceState.containsKey(DialogDefines.DATE_KEY) ? savedInstanceState : getArguments();
+		if(state != null && state.containsKey(DialogDefines.DATE_KEY)) {
+			mDay = state.getLong(DialogDefines.DATE_KEY);
+			mMinuteOfDay = state.getInt(DialogDefines.TIME_KEY);
+		} else {
+			long now = System.currentTimeMillis();
+			TimeZone zone = CalendarCache.getTimeZone();
+			mDay = EpochDay.fromMillis(now, zone);
+			mMinuteOfDay = EpochDay.minuteOfDay(now, zone);
+		}
+		mResult = DialogResult.attach(this);
+	}
+
+	@Override
+	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
+		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+
+		DialogSpec spec = DialogSpec.from(getArguments());
+		Resources res = getResources();
+		String title = spec.getString(res, DialogSpec.TITLE);
+		String yes = spec.has(DialogSpec.YES) ? spec.getString(res, DialogSpec.YES) : ButtonLabels.getYes(res);
+		String no = spec.has(DialogSpec.NO) ? spec.getString(res, DialogSpec.NO) : ButtonLabels.getNo(res);
+
+		long inflateStart = DialogMetrics.begin(DialogMetrics.SPAN_INFLATE);
+		View view = DialogViewPool.obtain(getActivity(), R.layout.datetime_dialog_fragment);
+		DialogMetrics.end(DialogMetrics.SPAN_INFLATE, inflateStart);
+		MonthView cal = (MonthView) view.findViewById(R.id.cal_calendar_dialog);
+		Bundle args = getArguments();
+		// set even to the defaults, so the bounds come from the arguments alone; pooled views are fresh, never reused
+		cal.setDayBounds(args.getLong(DialogDefines.MIN_DATE_KEY, Long.MIN_VALUE), args.getLong(DialogDefines.MAX_DATE_KEY, Long.MAX_VALUE));
+		cal.setDisabledDays((DaySet) args.getParcelable(DialogDefines.DISABLED_DAYS_KEY));
+		cal.setYearRange(args.getInt(DialogDefines.MIN_YEAR_KEY, MonthView.DEFAULT_MIN_YEAR), args.getInt(DialogDefines.MAX_YEAR_KEY, MonthView.DEFAULT_MAX_YEAR));
+		cal.setSelectedDay(mDay);
+		cal.setOnDateChangeListener(this);
+		mMonthView = cal;
+
+		TimePicker time = (TimePicker) view.findViewById(R.id.tmp_datetime_dialog);
+		time.setIs24HourView(DateFormat.is24HourFormat(getActivity()));
+		// set before listening, so setting it doesn't report back
+		time.setOnTimeChangedListener(null);
+		time.setCurrentHour(mMinuteOfDay / 60);
+		time.setCurrentMinute(mMinuteOfDay % 60);
+		time.setOnTimeChangedListener(this);
+
+		if(title != null) {
+			builder.setTitle(title);
+		}
+		builder.setView(view);
+		builder.setNegativeButton(no, this);
+
+		builder.setPositiveButton(yes, this);
+
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		Dialog ret = builder.create();
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
+	}
+
+	@Override
+	public void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		outState.putLong(DialogDefines.DATE_KEY, mDay);
+		outState.putInt(DialogDefines.TIME_KEY, mMinuteOfDay);
+	}
+
+	/**
+	 * This method returns the selected date and time in milliseconds, so it can be converted to any type you need.
+	 * @return milliseconds since the epoch of the selected date and time, in the default time zone;
+	 * or of the starting ones if none were selected
+	 */
+	public long getMillis() {
+		return EpochDay.toMillis(mDay, mMinuteOfDay, CalendarCache.getTimeZone());
+	}
+
+	/**
+	 * This method returns the selected date and time in a {@link java.util.Date} format.
+	 * @return the selected date and time; or the starting ones if none were selected
+	 */
+	public Date getDate() {
+		return new Date(getMillis());
+	}
+
+	/**
+	 * Limits the dates that can be picked; the months out of bounds can't be paged to either.
+	 * @param min the first date that can be picked, null for no limit
+	 * @param max the last date that can be picked, null for no limit
+	 * @return this same dialog
+	 */
+	public DateTimeDialogFragment setDateBounds(Date min, Date max) {
+		Bundle args = ensureArguments();
+		TimeZone zone = CalendarCache.getTimeZone();
+		args.putLong(DialogDefines.MIN_DATE_KEY, min != null ? EpochDay.fromMillis(min.getTime(), zone) : Long.MIN_VALUE);
+		args.putLong(DialogDefines.MAX_DATE_KEY, max != null ? EpochDay.fromMillis(max.getTime(), zone) : Long.MAX_VALUE);
+		return this;
+	}
+
+	/**
+	 * Keeps some dates from being picked, as {@link CalendarDialogFragment#setDisabledDays} does
+	 * @param days the dates that can't be picked
+	 * @return this same dialog
+	 */
+	public DateTimeDialogFragment setDisabledDays(DaySet days) {
+		ensureArguments().putParcelable(DialogDefines.DISABLED_DAYS_KEY, days);
+		return this;
+	}
+
+	/**
+	 * Sets the years offered when jumping to a year, as {@link CalendarDialogFragment#setYearRange} does
+	 * @param minYear the first year offered
+	 * @param maxYear the last year offered
+	 * @return this same dialog
+	 */
+	public DateTimeDialogFragment setYearRange(int minYear, int maxYear) {
+		Bundle args = ensureArguments();
+		args.putInt(DialogDefines.MIN_YEAR_KEY, minYear);
+		args.putInt(DialogDefines.MAX_YEAR_KEY, maxYear);
+		return this;
+	}
+
+	/**
+	 * Has the dialog confirm through the listener its Activity registers on {@link DialogListeners}
+	 * under this request code, instead of one given to <i>newInstance</i>. <br />
+	 * Unlike the latter, it's found again after the dialog is re-created.
+	 * @param requestCode the request code the listener is registered with
+	 * @return this same dialog
+	 */
+	public DateTimeDialogFragment setRequestCode(int requestCode) {
+		ensureArguments().putInt(DialogDefines.REQUEST_CODE_KEY, requestCode);
+		return this;
+	}
+
+	private Bundle ensureArguments() {
+		Bundle ret = getArguments();
+		if(ret == null) {
+			ret = new Bundle();
+			setArguments(ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the listener given to newInstance, else the one registered for the
+	 * request code, else a dismissive one
+	 */
+	private DialogInterface.OnClickListener getListener() {
+		if(mListener != null) {
+			return mListener;
+		}
+		Bundle args = getArguments();
+		if(args != null && args.containsKey(DialogDefines.REQUEST_CODE_KEY)) {
+			DialogInterface.OnClickListener ret = DialogListeners.get(getActivity(), args.getInt(DialogDefines.REQUEST_CODE_KEY));
+			if(ret != null) {
+				return ret;
+			}
+		}
+		return DismissListener.getInstance();
+	}
+
+	/**
+	 * Click dispatcher shared by the buttons of the dialog
+	 */
+	@Override
+	public void onClick(DialogInterface dialog, int which) {
+		int span = which == DialogInterface.BUTTON_POSITIVE ? DialogMetrics.SPAN_CALLBACK_POSITIVE : DialogMetrics.SPAN_CALLBACK_NEGATIVE;
+		long start = DialogMetrics.begin(span);
+		switch(which) {
+		case DialogInterface.BUTTON_POSITIVE:
+			long millis = getMillis();
+			if(mCallback != null) {
+				mCallback.onConfirm(millis);
+			} else {
+				getListener().onClick(dialog, which);
+			}
+			mResult.complete(millis);
+			break;
+		default:
+			DismissListener.getInstance().onClick(dialog, which);
+			mResult.cancel();
+			break;
+		}
+		DialogMetrics.end(span, start);
+	}
+
+	@Override
+	public void onSelectedDayChange(MonthView view, int year, int month, int dayOfMonth) {
+		mDay = EpochDay.of(year, month, dayOfMonth);
+		updatePositiveButton();
+	}
+
+	@Override
+	public void onTimeChanged(TimePicker view, int hourOfDay, int minute) {
+		mMinuteOfDay = hourOfDay * 60 + minute;
+	}
+
+	/**
+	 * Enables the confirm button only while the selected date can be picked
+	 */
+	private void updatePositiveButton() {
+		AlertDialog dialog = (AlertDialog) getDialog();
+		if(dialog != null && mMonthView != null) {
+			dialog.getButton(DialogInterface.BUTTON_POSITIVE).setEnabled(mMonthView.isSelectable(mDay));
+		}
+	}
+
+	/**
+	 * Same as <i>show</i>, but callable from any thread and at any time. <br />
+	 * If the Activity isn't resumed, the dialog waits for it on {@link PendingDialogsFragment}
+	 * instead of throwing; see {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
+	 */
+	public void showFromAnyThread(FragmentManager manager, String tag) {
+		PendingDialogsFragment.showFromAnyThread(manager, this, tag);
+	}
+
+	/**
+	 * Shows the dialog, from any thread and at any time like {@link #showFromAnyThread},
+	 * and hands back its result: the picked date and time in milliseconds once confirmed,
+	 * cancelled otherwise
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the dialog's result
+	 */
+	public DialogResult<Long> showForResult(FragmentManager manager) {
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		DialogMetrics.watchFirstFrame(getDialog(), mCreateStart);
+		mCreateStart = 0;
+		updatePositiveButton();
+	}
+
+	@Override
+	public void onDismiss(DialogInterface dialog) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_DISMISS);
+		super.onDismiss(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_DISMISS, start);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		mResult.cancel();
+	}
+
+	@Override
+	public void onDestroyView() {
+		super.onDestroyView();
+		mMonthView = null;
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		mResult.detach(getActivity());
+	}
+
+	@Override
+	public void onAttach(Activity a) {
+		super.onAttach(a);
+		if(a instanceof OnDateTimeConfirmListener) {
+			mCallback = (OnDateTimeConfirmListener) a;
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package lib.dialogfragment.dialog.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import lib.dialogfragment.R;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.defs.DialogStep;
+import lib.dialogfragment.dialog.listener.interfaces.OnSequenceConfirmListener;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.util.ButtonLabels;
+import lib.dialogfragment.util.DialogViewPool;
+import lib.dialogfragment.widget.MonthView;
+import android.app.Activity;
+import android.app.AlertDialog;
+import android.app.Dialog;
+import android.content.DialogInterface;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.support.v4.app.DialogFragment;
+import android.support.v4.app.FragmentManager;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.TextView;
+
+/**
+ * Support (v4) version of several dialog steps (confirm, edit, calendar) run inside a single dialog window. <br />
+ * Moving between steps only swaps the content view, title and button labels, so there's
+ * no window nor fragment being torn down and created again in between, and each kind of
+ * content is inflated once per sequence. <br />
+ * <i>Yes</i> moves to the next step, <i>no</i> back to the previous one, and the sequence
+ * is confirmed past its last step with every step's value, keyed by {@link #getResultKey(int)}:
+ * <i>true</i> for confirm steps, the text for edit steps and the {@link lib.dialogfragment.util.EpochDay epoch day}
+ * for calendar steps. Values, including the ones being entered, survive configuration changes.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class DialogSequence extends DialogFragment implements View.OnClickListener {
+	private static final String STEPS_KEY = "_steps_";
+	private static final String STEP_KEY = "_step_";
+	private static final String RESULTS_KEY = "_results_";
+
+	private ArrayList<DialogStep> mSteps;
+	private int mStep;
+	private Bundle mResults;
+	private final View[] mContents = new View[DialogStep.TYPE_COUNT];
+	private ViewGroup mContainer;
+	private OnSequenceConfirmListener mCallback;
+	private long mCreateStart;
+	private DialogResult.Binding<Bundle> mResult;
+
+	/**
+	 * Mandatory empty constructor
+	 */
+	public DialogSequence() {}
+
+	/**
+	 * Use this method to create a new dialog sequence
+	 * @param steps The steps, in order
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static DialogSequence newInstance(DialogStep... steps) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
+		DialogSequence ret = new DialogSequence();
+
+		Bundle args = new Bundle();
+		args.putParcelableArrayList(STEPS_KEY, new ArrayList<DialogStep>(Arrays.asList(steps)));
+		ret.setArguments(args);
+
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
+		return ret;
+	}
+
+	/**
+	 * @param step index of a step
+	 * @return the key of the step's value in the results
+	 */
+	public static String getResultKey(int step) {
+		return Integer.toString(step);
+	}
+
+	/**
+	 * @return index of the step being shown
+	 */
+	public int getStep() {
+		return mStep;
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mSteps = getArguments().getParcelableArrayList(STEPS_KEY);
+		if(savedInstanceState != null) {
+			mStep = savedInstanceState.getInt(STEP_KEY);
+			mResults = savedInstanceState.getBundle(RESULTS_KEY);
+		}
+		if(mResults == null) {
+			mResults = new Bundle();
+		}
+		mResult = DialogResult.attach(this);
+	}
+
+	@Override
+	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
+		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
+
+		long inflateStart = DialogMetrics.begin(DialogMetrics.SPAN_INFLATE);
+		mContainer = (ViewGroup) DialogViewPool.obtain(getActivity(), R.layout.sequence_dialog_fragment);
+		DialogMetrics.end(DialogMetrics.SPAN_INFLATE, inflateStart);
+		builder.setView(mContainer);
+		// the title view is only laid out if there's a title from the start
+		for(int i = 0; i < mSteps.size(); i++) {
+			if(mSteps.get(i).getSpec().has(DialogSpec.TITLE)) {
+				builder.setTitle(" ");
+				break;
+			}
+		}
+		// the buttons get their labels, and listeners that don't dismiss, once shown
+		builder.setPositiveButton(" ", null);
+		builder.setNegativeButton(" ", null);
+
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		AlertDialog ret = builder.create();
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		showStep(ret);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
+	}
+
+	/**
+	 * Moves a step forward on <i>yes</i>, back on <i>no</i>
+	 */
+	@Override
+	public void onClick(View v) {
+		AlertDialog dialog = (AlertDialog) getDialog();
+		keepValue();
+		if(v == dialog.getButton(DialogInterface.BUTTON_POSITIVE)) {
+			if(mSteps.get(mStep).getType() == DialogStep.TYPE_CONFIRM) {
+				mResults.putBoolean(getResultKey(mStep), true);
+			}
+			if(mStep == mSteps.size() - 1) {
+				confirm();
+				return;
+			}
+			moveTo(dialog, mStep + 1);
+		} else if(mStep == 0) {
+			dialog.cancel();
+		} else {
+			moveTo(dialog, mStep - 1);
+		}
+	}
+
+	/**
+	 * Same as <i>show</i>, but callable from any thread and at any time. <br />
+	 * If the Activity isn't resumed, the dialog waits for it on {@link PendingDialogsFragment}
+	 * instead of throwing; see {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
+	 */
+	public void showFromAnyThread(FragmentManager manager, String tag) {
+		PendingDialogsFragment.showFromAnyThread(manager, this, tag);
+	}
+
+	/**
+	 * Shows the sequence, from any thread and at any time like {@link #showFromAnyThread},
+	 * and hands back its result: the values of every step once confirmed, cancelled otherwise
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the sequence's result
+	 */
+	public DialogResult<Bundle> showForResult(FragmentManager manager) {
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		AlertDialog dialog = (AlertDialog) getDialog();
+		dialog.getButton(DialogInterface.BUTTON_POSITIVE).setOnClickListener(this);
+		dialog.getButton(DialogInterface.BUTTON_NEGATIVE).setOnClickListener(this);
+		showButtons(dialog);
+		DialogMetrics.watchFirstFrame(dialog, mCreateStart);
+		mCreateStart = 0;
+	}
+
+	@Override
+	public void onSaveInstanceState(Bundle outState) {
+		super.onSaveInstanceState(outState);
+		keepValue();
+		outState.putInt(STEP_KEY, mStep);
+		outState.putBundle(RESULTS_KEY, mResults);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		mResult.cancel();
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		mResult.detach(getActivity());
+	}
+
+	@Override
+	public void onAttach(Activity a) {
+		super.onAttach(a);
+		if(a instanceof OnSequenceConfirmListener) {
+			mCallback = (OnSequenceConfirmListener) a;
+		}
+	}
+
+	private void confirm() {
+		mResult.complete(new Bundle(mResults));
+		if(mCallback != null) {
+			mCallback.onConfirm(mResults);
+		}
+		dismiss();
+	}
+
+	private void moveTo(AlertDialog dialog, int step) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_SEQUENCE_STEP);
+		mStep = step;
+		showStep(dialog);
+		showButtons(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_SEQUENCE_STEP, start);
+	}
+
+	/**
+	 * Swaps in the content and title of the current step
+	 */
+	private void showStep(AlertDialog dialog) {
+		DialogStep step = mSteps.get(mStep);
+		Resources res = getResources();
+		String key = getResultKey(mStep);
+		View content = getContent(step.getType());
+		if(mContainer.getChildCount() == 0 || mContainer.getChildAt(0) != content) {
+			mContainer.removeAllViews();
+			mContainer.addView(content);
+		}
+		switch(step.getType()) {
+		case DialogStep.TYPE_EDIT:
+			EditText edit = (EditText) content.findViewById(R.id.edt_edit_dialog);
+			edit.setText(mResults.getString(key, ""));
+			break;
+		case DialogStep.TYPE_CALENDAR:
+			MonthView cal = (MonthView) content.findViewById(R.id.cal_calendar_dialog);
+			cal.setSelectedDay(mResults.containsKey(key) ? mResults.getLong(key) : step.getEpochDay());
+			break;
+		default:
+			TextView message = (TextView) content.findViewById(R.id.txt_sequence_dialog);
+			message.setText(step.getSpec().getString(res, DialogSpec.MESSAGE));
+			break;
+		}
+		String title = step.getSpec().getString(res, DialogSpec.TITLE);
+		dialog.setTitle(title != null ? title : " ");
+	}
+
+	/**
+	 * Labels the buttons for the current step. They only exist once the dialog is shown.
+	 */
+	private void showButtons(AlertDialog dialog) {
+		DialogSpec spec = mSteps.get(mStep).getSpec();
+		Resources res = getResources();
+		View yes = dialog.getButton(DialogInterface.BUTTON_POSITIVE);
+		View no = dialog.getButton(DialogInterface.BUTTON_NEGATIVE);
+		if(yes != null) {
+			((TextView) yes).setText(spec.has(DialogSpec.YES) ? spec.getString(res, DialogSpec.YES) : ButtonLabels.getYes(res));
+		}
+		if(no != null) {
+			((TextView) no).setText(spec.has(DialogSpec.NO) ? spec.getString(res, DialogSpec.NO) : ButtonLabels.getNo(res));
+		}
+	}
+
+	/**
+	 * Stores the value being entered on the current step
+	 */
+	private void keepValue() {
+		View content = mContents[mSteps.get(mStep).getType()];
+		if(content == null) {
+			return;
+		}
+		String key = getResultKey(mStep);
+		switch(mSteps.get(mStep).getType()) {
+		case DialogStep.TYPE_EDIT:
+			EditText edit = (EditText) content.findViewById(R.id.edt_edit_dialog);
+			mResults.putString(key, edit.getText().toString());
+			break;
+		case DialogStep.TYPE_CALENDAR:
+			MonthView cal = (MonthView) content.findViewById(R.id.cal_calendar_dialog);
+			mResults.putLong(key, cal.getSelectedDay());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * @return the content view for a kind of step, inflated once per sequence
+	 */
+	private View getContent(int type) {
+		if(mContents[type] == null) {
+			switch(type) {
+			case DialogStep.TYPE_EDIT:
+				mContents[type] = DialogViewPool.obtain(getActivity(), R.layout.edit_dialog_fragment);
+				break;
+			case DialogStep.TYPE_CALENDAR:
+				mContents[type] = DialogViewPool.obtain(getActivity(), R.layout.calendar_dialog_fragment);
+				break;
+			default:
+				mContents[type] = DialogViewPool.obtain(getActivity(), R.layout.sequence_message_step);
+				break;
+			}
+		}
+		return mContents[type];
+	}
+}
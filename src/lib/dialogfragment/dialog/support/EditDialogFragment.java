@@ -2,17 +2,27 @@ package lib.dialogfragment.dialog.support;
 
 import lib.dialogfragment.R;
 import lib.dialogfragment.defs.DialogDefines;
+import lib.dialogfragment.defs.DialogSpec;
+import lib.dialogfragment.dialog.listener.DialogListeners;
 import lib.dialogfragment.dialog.listener.DismissListener;
 import lib.dialogfragment.dialog.listener.interfaces.OnEditConfirmListener;
+import lib.dialogfragment.dialog.result.DialogResult;
+import lib.dialogfragment.metrics.DialogMetrics;
+import lib.dialogfragment.suggest.SuggestionAdapter;
+import lib.dialogfragment.suggest.SuggestionSource;
+import lib.dialogfragment.util.ButtonLabels;
+import lib.dialogfragment.util.DialogViewPool;
+import lib.dialogfragment.validation.EditValidation;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.content.Context;
 import android.content.DialogInterface;
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.support.v4.app.DialogFragment;
-import android.view.LayoutInflater;
+import android.support.v4.app.FragmentManager;
 import android.view.View;
+import android.widget.AutoCompleteTextView;
 import android.widget.EditText;
 
 /**
@@ -25,10 +35,15 @@ import android.widget.EditText;
  * @author SleeBee (Federico Mendez)
  *
  */
-public class EditDialogFragment extends DialogFragment {
-	private static EditText mEditText;
+public class EditDialogFragment extends DialogFragment implements DialogInterface.OnClickListener {
+	private static String sLastText = "";
+	private EditText mEditText;
 	private DialogInterface.OnClickListener mListener = null;
 	private OnEditConfirmListener mCallback;
+	private long mCreateStart;
+	private DialogResult.Binding<String> mResult;
+	private EditValidation mValidation;
+	private SuggestionSource mSuggestions;
 
 	/**
 	 * Mandatory empty constructor
@@ -45,24 +60,29 @@ public class EditDialogFragment extends DialogFragment {
 	 * @return a ready to {@link DialogFragment.show} dialog
 	 */
 	public static EditDialogFragment newInstance(String title, String yesButton, String noButton, DialogInterface.OnClickListener listener) {
+		return newInstance(new DialogSpec().setTitle(title).setYes(yesButton).setNo(noButton), listener);
+	}
+
+	/**
+	 * Use this method to create a new instance of the edit dialog out of a {@link DialogSpec}. <br />
+	 * Its texts can be either plain strings or string resources, which are resolved
+	 * when the dialog is shown.
+	 * @param spec The texts of the Dialog
+	 * @param listener Your listener/callback reference for the confirmation of the dialog
+	 * @return a ready to {@link DialogFragment.show} dialog
+	 */
+	public static EditDialogFragment newInstance(DialogSpec spec, DialogInterface.OnClickListener listener) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_NEW_INSTANCE);
 		EditDialogFragment ret = new EditDialogFragment();
 
-		mEditText = null;
 		Bundle args = new Bundle();
-		if(title != null && title.length() > 0) {
-			args.putString(DialogDefines.TITLE_KEY, title);
-		}
-		if(yesButton != null && yesButton.length() > 0) {
-			args.putString(DialogDefines.YES_KEY, yesButton);
-		}
-		if(noButton != null && noButton.length() > 0) {
-			args.putString(DialogDefines.NO_KEY, noButton);
-		}
+		args.putParcelable(DialogDefines.SPEC_KEY, spec);
 		if(listener != null) {
 			ret.mListener = listener;
 		}
 		ret.setArguments(args);
 
+		DialogMetrics.end(DialogMetrics.SPAN_NEW_INSTANCE, start);
 		return ret;
 	}
 
@@ -95,74 +115,223 @@ public class EditDialogFragment extends DialogFragment {
 	 * @return a ready to {@link DialogFragment.show} dialog
 	 */
 	public static EditDialogFragment newInstance(DialogInterface.OnClickListener listener) {
-		return newInstance(null, null, null);
+		return newInstance(null, null, null, listener);
+	}
+
+	@Override
+	public void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		mResult = DialogResult.attach(this);
+		if(mValidation == null && getActivity() instanceof EditValidation.Provider) {
+			mValidation = ((EditValidation.Provider) getActivity()).getValidation(getTag());
+		}
 	}
 
 	@Override
 	public Dialog onCreateDialog(Bundle savedInstanceState) {
+		mCreateStart = DialogMetrics.begin(DialogMetrics.SPAN_CREATE_DIALOG);
 		AlertDialog.Builder builder = new AlertDialog.Builder(getActivity());
-		Bundle args = getArguments();
-		String title = null;
-		String yes = null;
-		String no = null;
-		if(args != null) {
-			if(args.containsKey(DialogDefines.TITLE_KEY)){
-				title = args.getString(DialogDefines.TITLE_KEY);
-			}
-			if(args.containsKey(DialogDefines.YES_KEY)) {
-				yes = args.getString(DialogDefines.YES_KEY);
-			} else {
-				yes = getString(R.string.yes);
-			}
-			if(args.containsKey(DialogDefines.NO_KEY)) {
-				no = args.getString(DialogDefines.NO_KEY);
-			} else {
-				no = getString(R.string.no);
-			}
-		}
+		DialogSpec spec = DialogSpec.from(getArguments());
+		Resources res = getResources();
+		String title = spec.getString(res, DialogSpec.TITLE);
+		String yes = spec.has(DialogSpec.YES) ? spec.getString(res, DialogSpec.YES) : ButtonLabels.getYes(res);
+		String no = spec.has(DialogSpec.NO) ? spec.getString(res, DialogSpec.NO) : ButtonLabels.getNo(res);
 
-		LayoutInflater inflater = (LayoutInflater) getActivity().getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-		View v = inflater.inflate(R.layout.edit_dialog_fragment, null);
+		long inflateStart = DialogMetrics.begin(DialogMetrics.SPAN_INFLATE);
+		View v = DialogViewPool.obtain(getActivity(), R.layout.edit_dialog_fragment);
+		DialogMetrics.end(DialogMetrics.SPAN_INFLATE, inflateStart);
 		mEditText = (EditText) v.findViewById(R.id.edt_edit_dialog);
+		Bundle args = getArguments();
+		String suggestions = args != null ? args.getString(DialogDefines.SUGGESTIONS_KEY) : null;
+		if(suggestions != null) {
+			// read and indexed in the background the first time it's needed
+			mSuggestions = SuggestionSource.get(getActivity(), suggestions);
+			mSuggestions.load();
+			((AutoCompleteTextView) mEditText).setAdapter(new SuggestionAdapter(getActivity(), mSuggestions));
+		}
 
 		builder.setView(v);
 		if(title != null) {
 			builder.setTitle(title);
 		}
-		DialogInterface.OnClickListener listener = null;
-		if(mCallback == null) {
-			if(mListener == null) {
-				listener = new DismissListener();
-			} else {
-				listener = mListener;
-			}
-		} else {
-			listener = new DialogInterface.OnClickListener() {
-				@Override
-				public void onClick(DialogInterface dialog, int which) {
-					mCallback.onConfirm(mEditText.getText().toString());
-				}
-			};
-		}
-		builder.setPositiveButton(yes, listener);
-		builder.setNegativeButton(no, new DismissListener());
+		builder.setPositiveButton(yes, this);
+		builder.setNegativeButton(no, this);
 
-		return builder.create();
+		long createStart = DialogMetrics.begin(DialogMetrics.SPAN_BUILDER_CREATE);
+		Dialog ret = builder.create();
+		DialogMetrics.end(DialogMetrics.SPAN_BUILDER_CREATE, createStart);
+		DialogMetrics.end(DialogMetrics.SPAN_CREATE_DIALOG, mCreateStart);
+
+		return ret;
 	}
 
 	/**
 	 * Probably the most important method of the class. 
 	 * This static method lets you obtain the imputed text
-	 * @return The text that was entered on the dialog
+	 * @return The text that was entered on the last dialog, as it was when one of its buttons was clicked or it was dismissed
 	 */
 	public static String getText() {
-		String ret = "";
+		return sLastText;
+	}
+
+	/**
+	 * Copies the text out of the EditText, so no view has to be kept around for {@link #getText()}
+	 */
+	private void keepText() {
 		if(mEditText != null && mEditText.getText() != null) {
-			ret = mEditText.getText().toString();
+			sLastText = mEditText.getText().toString();
+		}
+	}
+
+	/**
+	 * Validates the text while it's typed, enabling the confirm button only while it's valid. <br />
+	 * Like a listener given to <i>newInstance</i>, it isn't kept when the dialog is re-created;
+	 * have the Activity implement {@link EditValidation.Provider} for that.
+	 * @param validation the validators to run
+	 * @return this same dialog
+	 */
+	public EditDialogFragment setValidation(EditValidation validation) {
+		mValidation = validation;
+		return this;
+	}
+
+	/**
+	 * Suggests what was entered before in dialogs using the same source, as well as its
+	 * vocabularies, while the text is typed. Confirmed texts are added to the source.
+	 * @param name the name of the {@link SuggestionSource}
+	 * @return this same dialog
+	 */
+	public EditDialogFragment setSuggestions(String name) {
+		ensureArguments().putString(DialogDefines.SUGGESTIONS_KEY, name);
+		return this;
+	}
+
+	/**
+	 * Has the dialog confirm through the listener its Activity registers on {@link DialogListeners}
+	 * under this request code, instead of one given to <i>newInstance</i>. <br />
+	 * Unlike the latter, it's found again after the dialog is re-created.
+	 * @param requestCode the request code the listener is registered with
+	 * @return this same dialog
+	 */
+	public EditDialogFragment setRequestCode(int requestCode) {
+		ensureArguments().putInt(DialogDefines.REQUEST_CODE_KEY, requestCode);
+		return this;
+	}
+
+	private Bundle ensureArguments() {
+		Bundle ret = getArguments();
+		if(ret == null) {
+			ret = new Bundle();
+			setArguments(ret);
 		}
 		return ret;
 	}
 
+	/**
+	 * @return the listener given to newInstance, else the one registered for the
+	 * request code, else a dismissive one
+	 */
+	private DialogInterface.OnClickListener getListener() {
+		if(mListener != null) {
+			return mListener;
+		}
+		Bundle args = getArguments();
+		if(args != null && args.containsKey(DialogDefines.REQUEST_CODE_KEY)) {
+			DialogInterface.OnClickListener ret = DialogListeners.get(getActivity(), args.getInt(DialogDefines.REQUEST_CODE_KEY));
+			if(ret != null) {
+				return ret;
+			}
+		}
+		return DismissListener.getInstance();
+	}
+
+	/**
+	 * Click dispatcher shared by the buttons of the dialog
+	 */
+	@Override
+	public void onClick(DialogInterface dialog, int which) {
+		int span = which == DialogInterface.BUTTON_POSITIVE ? DialogMetrics.SPAN_CALLBACK_POSITIVE : DialogMetrics.SPAN_CALLBACK_NEGATIVE;
+		long start = DialogMetrics.begin(span);
+		keepText();
+		switch(which) {
+		case DialogInterface.BUTTON_POSITIVE:
+			if(mSuggestions != null) {
+				mSuggestions.remember(sLastText);
+			}
+			if(mCallback != null) {
+				mCallback.onConfirm(sLastText);
+			} else {
+				getListener().onClick(dialog, which);
+			}
+			mResult.complete(sLastText);
+			break;
+		default:
+			DismissListener.getInstance().onClick(dialog, which);
+			mResult.cancel();
+			break;
+		}
+		DialogMetrics.end(span, start);
+	}
+
+	/**
+	 * Same as <i>show</i>, but callable from any thread and at any time. <br />
+	 * If the Activity isn't resumed, the dialog waits for it on {@link PendingDialogsFragment}
+	 * instead of throwing; see {@link PendingDialogsFragment#showFromAnyThread}.
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @param tag The tag for this fragment
+	 */
+	public void showFromAnyThread(FragmentManager manager, String tag) {
+		PendingDialogsFragment.showFromAnyThread(manager, this, tag);
+	}
+
+	/**
+	 * Shows the dialog, from any thread and at any time like {@link #showFromAnyThread},
+	 * and hands back its result: the entered text once confirmed, cancelled otherwise
+	 * @param manager The FragmentManager this fragment will be added to
+	 * @return the handle to the dialog's result
+	 */
+	public DialogResult<String> showForResult(FragmentManager manager) {
+		return PendingDialogsFragment.showForResult(manager, this);
+	}
+
+	@Override
+	public void onStart() {
+		super.onStart();
+		DialogMetrics.watchFirstFrame(getDialog(), mCreateStart);
+		mCreateStart = 0;
+		if(mValidation != null) {
+			mValidation.attach(mEditText, ((AlertDialog) getDialog()).getButton(DialogInterface.BUTTON_POSITIVE));
+		}
+	}
+
+	@Override
+	public void onStop() {
+		super.onStop();
+		if(mValidation != null) {
+			mValidation.detach();
+		}
+	}
+
+	@Override
+	public void onDismiss(DialogInterface dialog) {
+		long start = DialogMetrics.begin(DialogMetrics.SPAN_CALLBACK_DISMISS);
+		keepText();
+		super.onDismiss(dialog);
+		DialogMetrics.end(DialogMetrics.SPAN_CALLBACK_DISMISS, start);
+	}
+
+	@Override
+	public void onCancel(DialogInterface dialog) {
+		super.onCancel(dialog);
+		mResult.cancel();
+	}
+
+	@Override
+	public void onDestroy() {
+		super.onDestroy();
+		mResult.detach(getActivity());
+	}
+
 	@Override
 	public void onAttach(Activity a) {
 		super.onAttach(a);
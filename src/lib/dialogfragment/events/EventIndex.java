@@ -0,0 +1,157 @@
+package lib.dialogfragment.events;
+
+import java.util.Arrays;
+
+/**
+ * {@link EventSource} over events held in memory, however many. <br />
+ * Each event spans one or more days and is packed into a single <code>long</code>
+ * (first day and length). Events are split in classes by length, each a power of two
+ * wider than the previous one, and sorted by their first day within each class. Counting
+ * a range only visits, in every class, the events starting between the range's start minus
+ * the longest event of the class and its end, found with a binary search. Since lengths
+ * within a class are at most twice one another, a few long events don't make every
+ * lookup walk the short ones, and paging months never scans the whole set. <br />
+ * Build it with an {@link EventIndex.Builder}, adding events as they're read.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class EventIndex implements EventSource {
+	private static final long LENGTH_MASK = 0xffffffffL;
+
+	// length classes: 0 days after the first, 1, 2 to 3, 4 to 7...
+	private static final int CLASSES = 33;
+
+	// per non-empty class, first day in the high half, days after it in the low one
+	private final long[][] mEvents;
+	private final long[] mLongest;
+	private final int mSize;
+
+	private EventIndex(long[][] events, long[] longest, int size) {
+		mEvents = events;
+		mLongest = longest;
+		mSize = size;
+	}
+
+	/**
+	 * @return the amount of events in the index
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	@Override
+	public void countEvents(long fromDay, long toDay, int[] counts) {
+		for(int c = 0; c < mEvents.length; c++) {
+			long[] events = mEvents[c];
+			int from = firstStartingFrom(events, fromDay - mLongest[c]);
+			int to = firstStartingFrom(events, toDay + 1);
+			for(int i = from; i < to; i++) {
+				long start = events[i] >> 32;
+				long end = start + (events[i] & LENGTH_MASK);
+				if(end < fromDay) {
+					continue;
+				}
+				long last = Math.min(end, toDay);
+				for(long day = Math.max(start, fromDay); day <= last; day++) {
+					counts[(int) (day - fromDay)]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return index of the first event starting on the given day or later
+	 */
+	private static int firstStartingFrom(long[] events, long day) {
+		int lo = 0;
+		int hi = events.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if((events[mid] >> 32) < day) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Collects events in any order and sorts them once, on {@link #build()}
+	 */
+	public static final class Builder {
+		private long[] mEvents = new long[64];
+		private int mSize;
+
+		/**
+		 * Adds a one-day event
+		 * @return this same builder
+		 */
+		public Builder add(long epochDay) {
+			return add(epochDay, epochDay);
+		}
+
+		/**
+		 * Adds an event spanning several days
+		 * @param fromDay the first epoch day of the event
+		 * @param toDay the last epoch day of the event, both included
+		 * @return this same builder
+		 */
+		public Builder add(long fromDay, long toDay) {
+			if(toDay < fromDay) {
+				throw new IllegalArgumentException("The event ends before it starts");
+			}
+			if(mSize == mEvents.length) {
+				mEvents = Arrays.copyOf(mEvents, mSize * 2);
+			}
+			long length = toDay - fromDay;
+			mEvents[mSize++] = (fromDay << 32) | length;
+			return this;
+		}
+
+		/**
+		 * Sorts the events added so far into an index; the builder can go on afterwards
+		 */
+		public EventIndex build() {
+			int[] sizes = new int[CLASSES];
+			long[] longest = new long[CLASSES];
+			for(int i = 0; i < mSize; i++) {
+				long length = mEvents[i] & LENGTH_MASK;
+				int c = classOf(length);
+				sizes[c]++;
+				longest[c] = Math.max(longest[c], length);
+			}
+			int used = 0;
+			for(int c = 0; c < CLASSES; c++) {
+				if(sizes[c] > 0) {
+					used++;
+				}
+			}
+			// empty classes are left out, so lookups only go through the ones in use
+			long[][] events = new long[used][];
+			long[] usedLongest = new long[used];
+			int[] slot = new int[CLASSES];
+			for(int c = 0, u = 0; c < CLASSES; c++) {
+				if(sizes[c] > 0) {
+					events[u] = new long[sizes[c]];
+					usedLongest[u] = longest[c];
+					slot[c] = u++;
+				}
+			}
+			int[] filled = new int[used];
+			for(int i = 0; i < mSize; i++) {
+				int u = slot[classOf(mEvents[i] & LENGTH_MASK)];
+				events[u][filled[u]++] = mEvents[i];
+			}
+			for(long[] each : events) {
+				// sorting the packed values sorts by first day
+				Arrays.sort(each);
+			}
+			return new EventIndex(events, usedLongest, mSize);
+		}
+
+		private static int classOf(long length) {
+			return 64 - Long.numberOfLeadingZeros(length);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package lib.dialogfragment.events;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import lib.dialogfragment.util.EpochDay;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+/**
+ * Loads the events of a calendar month by month. <br />
+ * Months are counted on a background thread, through their {@link EventSource}, and
+ * the counts are kept for the latest months used, so paging back and forth doesn't
+ * query the source again. Every method is to be called on the main thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class EventLoader {
+	/**
+	 * Default amount of months kept
+	 */
+	public static final int DEFAULT_CAPACITY = 12;
+
+	private static final String TAG = "EventLoader";
+
+	private static final Executor sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, "EventLoader");
+			ret.setDaemon(true);
+			return ret;
+		}
+	});
+	private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Told when the counts of a month are ready
+	 */
+	public interface Listener {
+		public void onMonthLoaded(int year, int month);
+	}
+
+	private final EventSource mSource;
+	private final LinkedHashMap<Integer, int[]> mMonths;
+	private final HashSet<Integer> mLoading = new HashSet<Integer>();
+	private Listener mListener;
+	private boolean mReleased;
+
+	public EventLoader(EventSource source) {
+		this(source, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity amount of months kept
+	 */
+	public EventLoader(EventSource source, final int capacity) {
+		mSource = source;
+		mMonths = new LinkedHashMap<Integer, int[]>(capacity + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public void setListener(Listener listener) {
+		mListener = listener;
+	}
+
+	/**
+	 * @param month the zero-based month
+	 * @return the event count of each day of the month, the 1st's at 0; null while it's loading,
+	 * in which case the listener is told once it's ready
+	 */
+	public int[] get(int year, int month) {
+		Integer key = key(year, month);
+		int[] ret = mMonths.get(key);
+		if(ret == null) {
+			load(key);
+		}
+		return ret;
+	}
+
+	/**
+	 * Loads a month ahead of time, if it isn't already
+	 */
+	public void prefetch(int year, int month) {
+		Integer key = key(year, month);
+		if(!mMonths.containsKey(key)) {
+			load(key);
+		}
+	}
+
+	/**
+	 * Drops the listener and every count kept; results still loading are discarded
+	 */
+	public void release() {
+		mReleased = true;
+		mListener = null;
+		mMonths.clear();
+	}
+
+	private void load(final Integer key) {
+		if(mReleased || !mLoading.add(key)) {
+			return;
+		}
+		final int year = key / 12;
+		final int month = key % 12;
+		sExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				int[] counts = null;
+				try {
+					long first = EpochDay.of(year, month, 1);
+					counts = new int[EpochDay.lengthOfMonth(year, month)];
+					mSource.countEvents(first, first + counts.length - 1, counts);
+				} catch(RuntimeException e) {
+					// thrown out of the executor it would take the whole process down
+					Log.w(TAG, "Couldn't count the events of " + year + "-" + (month + 1), e);
+					counts = null;
+				}
+				// posted either way; without counts the month is loaded again when next asked for
+				final int[] loaded = counts;
+				sHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						mLoading.remove(key);
+						if(mReleased || loaded == null) {
+							return;
+						}
+						mMonths.put(key, loaded);
+						if(mListener != null) {
+							mListener.onMonthLoaded(year, month);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	private static Integer key(int year, int month) {
+		return year * 12 + month;
+	}
+}
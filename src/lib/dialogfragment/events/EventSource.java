@@ -0,0 +1,30 @@
+package lib.dialogfragment.events;
+
+/**
+ * Days with events, such as bookings or deliveries, to be marked on a calendar. <br />
+ * Calendars only ever ask for the month they show, from a background thread, so a source
+ * can be backed by anything able to answer for a range of days: an {@link EventIndex},
+ * a database query...
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public interface EventSource {
+	/**
+	 * Counts the events on each day of a range. Called on a background thread.
+	 * @param fromDay the first epoch day of the range
+	 * @param toDay the last epoch day of the range
+	 * @param counts where to add the count of each day, the first day's at 0; already zeroed
+	 */
+	public void countEvents(long fromDay, long toDay, int[] counts);
+
+	/**
+	 * Hands a calendar dialog its events back after it's re-created, since an {@link EventSource}
+	 * isn't saved along with the dialog. To be implemented by the Activity.
+	 */
+	public interface Provider {
+		/**
+		 * @param tag the tag the dialog was shown with
+		 */
+		public EventSource getEventSource(String tag);
+	}
+}
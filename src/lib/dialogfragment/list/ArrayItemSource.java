@@ -0,0 +1,24 @@
+package lib.dialogfragment.list;
+
+/**
+ * {@link ItemSource} over a plain array
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class ArrayItemSource implements ItemSource {
+	private final String[] mItems;
+
+	public ArrayItemSource(String[] items) {
+		mItems = items;
+	}
+
+	@Override
+	public int getCount() {
+		return mItems.length;
+	}
+
+	@Override
+	public String getItem(int position) {
+		return mItems[position];
+	}
+}
@@ -0,0 +1,203 @@
+package lib.dialogfragment.list;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Checkable;
+import android.widget.TextView;
+
+/**
+ * Adapter of a list dialog. <br />
+ * Rows are recycled and read their item from the {@link ItemSource} when bound, so only
+ * the visible rows are ever materialized. Choices are kept by source position, so they
+ * stay put while the list is filtered. <br />
+ * {@link #setFilter(String)} narrows the list down to the items starting with a prefix.
+ * The {@link PrefixIndex} is built on the first filter, and every search runs on a
+ * background thread; a search overtaken by a newer one is skipped, or its result dropped.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class ItemListAdapter extends BaseAdapter {
+	private static final Executor sFilterExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, "ListDialogFilter");
+			ret.setDaemon(true);
+			ret.setPriority(Thread.MIN_PRIORITY);
+			return ret;
+		}
+	});
+	private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+	private final LayoutInflater mInflater;
+	private final ItemSource mSource;
+	private final boolean mMultiple;
+	private final int mRowLayout;
+	private final Locale mLocale;
+	private final BitSet mChecked = new BitSet();
+	private final AtomicInteger mGeneration = new AtomicInteger();
+	private final AtomicBoolean mReleased = new AtomicBoolean();
+	// only touched from the filter thread
+	private PrefixIndex mIndex;
+	// the range of the index shown while filtering; mShown is null otherwise
+	private PrefixIndex mShown;
+	private int mFrom;
+	private int mTo;
+
+	/**
+	 * @param context the Activity hosting the list
+	 * @param source the items
+	 * @param multiple whether several items can be checked at once
+	 */
+	public ItemListAdapter(Context context, ItemSource source, boolean multiple) {
+		mInflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		mSource = source;
+		mMultiple = multiple;
+		mRowLayout = multiple ? android.R.layout.simple_list_item_multiple_choice : android.R.layout.simple_list_item_single_choice;
+		mLocale = Locale.getDefault();
+	}
+
+	/**
+	 * Shows only the items starting with the prefix, ignoring case. The list updates
+	 * once the search, running in the background, is done.
+	 * @param prefix the prefix; empty to show every item
+	 */
+	public void setFilter(String prefix) {
+		final String key = prefix.trim().toLowerCase(mLocale);
+		final int generation = mGeneration.incrementAndGet();
+		if(key.length() == 0) {
+			mShown = null;
+			notifyDataSetChanged();
+			return;
+		}
+		sFilterExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if(mGeneration.get() != generation) {
+					return;
+				}
+				if(mIndex == null) {
+					mIndex = PrefixIndex.build(mSource, mLocale, mReleased);
+					if(mIndex == null) {
+						return;
+					}
+				}
+				final PrefixIndex index = mIndex;
+				final int from = index.lowerBound(key);
+				final int to = index.upperBound(key);
+				sHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if(mGeneration.get() != generation) {
+							return;
+						}
+						mShown = index;
+						mFrom = from;
+						mTo = to;
+						notifyDataSetChanged();
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Stops any search in progress; the adapter shouldn't be filtered afterwards
+	 */
+	public void release() {
+		mReleased.set(true);
+		mGeneration.incrementAndGet();
+	}
+
+	/**
+	 * Checks or unchecks the item at the given source position; in single choice,
+	 * checking an item unchecks the previous one
+	 */
+	public void toggle(int sourcePosition) {
+		if(mMultiple) {
+			mChecked.flip(sourcePosition);
+		} else {
+			boolean checked = mChecked.get(sourcePosition);
+			mChecked.clear();
+			if(!checked) {
+				mChecked.set(sourcePosition);
+			}
+		}
+		notifyDataSetChanged();
+	}
+
+	/**
+	 * @return the source positions of the checked items, ascending
+	 */
+	public int[] getCheckedPositions() {
+		int[] ret = new int[mChecked.cardinality()];
+		int j = 0;
+		for(int i = mChecked.nextSetBit(0); i >= 0; i = mChecked.nextSetBit(i + 1)) {
+			ret[j++] = i;
+		}
+		return ret;
+	}
+
+	public void setCheckedPositions(int[] positions) {
+		mChecked.clear();
+		if(positions != null) {
+			for(int position : positions) {
+				mChecked.set(position);
+			}
+		}
+		notifyDataSetChanged();
+	}
+
+	/**
+	 * @return the position in the source of the row at the given position
+	 */
+	public int getSourcePosition(int position) {
+		return mShown == null ? position : mShown.getPosition(mFrom + position);
+	}
+
+	@Override
+	public int getCount() {
+		return mShown == null ? mSource.getCount() : mTo - mFrom;
+	}
+
+	@Override
+	public String getItem(int position) {
+		return mSource.getItem(getSourcePosition(position));
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return getSourcePosition(position);
+	}
+
+	@Override
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		View ret = convertView;
+		if(ret == null) {
+			ret = mInflater.inflate(mRowLayout, parent, false);
+		}
+		int sourcePosition = getSourcePosition(position);
+		((TextView) ret.findViewById(android.R.id.text1)).setText(mSource.getItem(sourcePosition));
+		if(ret instanceof Checkable) {
+			((Checkable) ret).setChecked(mChecked.get(sourcePosition));
+		}
+		return ret;
+	}
+}
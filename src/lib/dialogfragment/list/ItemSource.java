@@ -0,0 +1,26 @@
+package lib.dialogfragment.list;
+
+/**
+ * Items of a list dialog, read on demand. <br />
+ * Only the visible rows and, once filtering starts, the prefix index ever read them,
+ * so a source can be backed by anything (an array, a cursor, a generated range...).
+ * Items may be read from a background thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public interface ItemSource {
+	public int getCount();
+
+	public String getItem(int position);
+
+	/**
+	 * Hands a list dialog its items back after it's re-created, since an {@link ItemSource}
+	 * isn't saved along with the dialog. To be implemented by the Activity.
+	 */
+	public interface Provider {
+		/**
+		 * @param tag the tag the dialog was shown with
+		 */
+		public ItemSource getItemSource(String tag);
+	}
+}
@@ -0,0 +1,134 @@
+package lib.dialogfragment.list;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Case-insensitive prefix index over an {@link ItemSource}. <br />
+ * Items are sorted once by their lowercase text, so the items starting with a prefix
+ * are a contiguous range found with two binary searches, whatever the size of the source. <br />
+ * Besides list dialogs, it backs the vocabularies of edit dialog suggestions.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class PrefixIndex {
+	private static final int CANCEL_CHECK_MASK = 1023;
+
+	private final String[] mKeys;
+	private final int[] mPositions;
+
+	private PrefixIndex(String[] keys, int[] positions) {
+		mKeys = keys;
+		mPositions = positions;
+	}
+
+	/**
+	 * Reads and sorts every item of the source. Meant to run off the main thread.
+	 * @param cancelled checked every now and then to abandon the build
+	 * @return the index, or null if the build was cancelled
+	 */
+	public static PrefixIndex build(ItemSource source, Locale locale, AtomicBoolean cancelled) {
+		int count = source.getCount();
+		String[] keys = new String[count];
+		int[] positions = new int[count];
+		for(int i = 0; i < count; i++) {
+			if((i & CANCEL_CHECK_MASK) == 0 && cancelled.get()) {
+				return null;
+			}
+			String item = source.getItem(i);
+			keys[i] = item != null ? item.toLowerCase(locale) : "";
+			positions[i] = i;
+		}
+		if(!sort(positions, keys, cancelled)) {
+			return null;
+		}
+		String[] sorted = new String[count];
+		for(int i = 0; i < count; i++) {
+			sorted[i] = keys[positions[i]];
+		}
+		return new PrefixIndex(sorted, positions);
+	}
+
+	/**
+	 * Stable bottom-up merge sort of the positions by their keys, on plain ints so that
+	 * no position gets boxed
+	 * @return false if it was cancelled, leaving the positions in no particular order
+	 */
+	private static boolean sort(int[] positions, String[] keys, AtomicBoolean cancelled) {
+		int count = positions.length;
+		int[] from = positions;
+		int[] to = new int[count];
+		for(int width = 1; width < count; width <<= 1) {
+			if(cancelled.get()) {
+				return false;
+			}
+			for(int lo = 0; lo < count; lo += width << 1) {
+				int mid = Math.min(lo + width, count);
+				int hi = Math.min(lo + (width << 1), count);
+				int i = lo;
+				int j = mid;
+				int k = lo;
+				while(i < mid && j < hi) {
+					// <= keeps equal keys in source order
+					to[k++] = keys[from[i]].compareTo(keys[from[j]]) <= 0 ? from[i++] : from[j++];
+				}
+				while(i < mid) {
+					to[k++] = from[i++];
+				}
+				while(j < hi) {
+					to[k++] = from[j++];
+				}
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if(from != positions) {
+			System.arraycopy(from, 0, positions, 0, count);
+		}
+		return true;
+	}
+
+	/**
+	 * @param prefix a prefix, already lowercase
+	 * @return index of the first entry starting with the prefix, if any
+	 */
+	public int lowerBound(String prefix) {
+		int lo = 0;
+		int hi = mKeys.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(mKeys[mid].compareTo(prefix) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @param prefix a prefix, already lowercase
+	 * @return index past the last entry starting with the prefix
+	 */
+	public int upperBound(String prefix) {
+		int lo = lowerBound(prefix);
+		int hi = mKeys.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(mKeys[mid].startsWith(prefix)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the source position of the entry at the given index
+	 */
+	public int getPosition(int index) {
+		return mPositions[index];
+	}
+}
@@ -0,0 +1,181 @@
+package lib.dialogfragment.metrics;
+
+import android.app.Dialog;
+import android.os.Build;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Timing of the dialogs' hot paths. <br />
+ * Every dialog of the library reports how long its factory, <i>onCreateDialog</i>,
+ * layout inflation, <i>builder.create()</i>, first frame and button callbacks take,
+ * plus how long they wait in a dialog queue and how long a dialog sequence takes to switch steps. <br />
+ * Recording is off by default. Once {@link #setEnabled(boolean) enabled}, spans are written
+ * with {@link System#nanoTime()} timestamps into a preallocated lock-free ring, so the
+ * dialogs don't allocate nor lock anything to report them. {@link #drain()} hands the
+ * recorded spans to the {@link Sink} of your choice. <br />
+ * On API 18+ the synchronous spans can also be emitted as {@link Trace} sections, to line
+ * dialog jank up with systrace captures.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class DialogMetrics {
+	public static final int SPAN_NEW_INSTANCE = 0;
+	public static final int SPAN_CREATE_DIALOG = 1;
+	public static final int SPAN_INFLATE = 2;
+	public static final int SPAN_BUILDER_CREATE = 3;
+	public static final int SPAN_FIRST_FRAME = 4;
+	public static final int SPAN_CALLBACK_POSITIVE = 5;
+	public static final int SPAN_CALLBACK_NEGATIVE = 6;
+	public static final int SPAN_CALLBACK_DISMISS = 7;
+	public static final int SPAN_QUEUE_WAIT = 8;
+	public static final int SPAN_SEQUENCE_STEP = 9;
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private static final String[] SPAN_NAMES = {
+		"newInstance",
+		"onCreateDialog",
+		"inflate",
+		"builder.create",
+		"firstFrame",
+		"callback.positive",
+		"callback.negative",
+		"callback.dismiss",
+		"queue.wait",
+		"sequence.step",
+	};
+	private static final boolean TRACE_SUPPORTED = Build.VERSION.SDK_INT >= 18;
+
+	/**
+	 * Receiver of the recorded spans
+	 */
+	public interface Sink {
+		/**
+		 * @param span one of the <i>SPAN_*</i> constants
+		 * @param startNanos {@link System#nanoTime()} at the start of the span
+		 * @param durationNanos length of the span
+		 */
+		public void onSpan(int span, long startNanos, long durationNanos);
+	}
+
+	private static volatile boolean sEnabled;
+	private static volatile boolean sTracing;
+	private static volatile SpanRingBuffer sBuffer = new SpanRingBuffer(DEFAULT_CAPACITY);
+	private static volatile Sink sSink;
+
+	private DialogMetrics() {}
+
+	public static void setEnabled(boolean enabled) {
+		sEnabled = enabled;
+	}
+
+	public static boolean isEnabled() {
+		return sEnabled;
+	}
+
+	/**
+	 * Also emits {@link Trace} sections for the synchronous spans. Ignored below API 18. <br />
+	 * Toggle it while no dialog is being built, so no section is left open.
+	 */
+	public static void setTracingEnabled(boolean tracing) {
+		sTracing = tracing && TRACE_SUPPORTED;
+	}
+
+	/**
+	 * Replaces the ring buffer, dropping any span not drained yet
+	 * @param capacity amount of spans kept between drains, rounded up to a power of two
+	 */
+	public static void setCapacity(int capacity) {
+		sBuffer = new SpanRingBuffer(capacity);
+	}
+
+	public static void setSink(Sink sink) {
+		sSink = sink;
+	}
+
+	/**
+	 * Delivers every span recorded since the last drain to the current {@link Sink}
+	 * @return how many spans were delivered
+	 */
+	public static int drain() {
+		return sBuffer.drain(sSink);
+	}
+
+	/**
+	 * @return how many spans were overwritten before being drained
+	 */
+	public static long getDroppedCount() {
+		return sBuffer.getDroppedCount();
+	}
+
+	public static String getSpanName(int span) {
+		return SPAN_NAMES[span];
+	}
+
+	public static int getSpanCount() {
+		return SPAN_NAMES.length;
+	}
+
+	/**
+	 * Opens a span
+	 * @param span one of the <i>SPAN_*</i> constants
+	 * @return the start timestamp to hand to {@link #end}; 0 if recording is off
+	 */
+	public static long begin(int span) {
+		if(!sEnabled) {
+			return 0;
+		}
+		if(sTracing) {
+			Trace.beginSection(SPAN_NAMES[span]);
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * Closes a span opened by {@link #begin}
+	 * @param span the same constant given to {@link #begin}
+	 * @param start the value returned by {@link #begin}
+	 */
+	public static void end(int span, long start) {
+		if(start == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		if(sTracing) {
+			Trace.endSection();
+		}
+		sBuffer.put(span, start, now - start);
+	}
+
+	/**
+	 * Records a span that started at <i>start</i> and finishes now, without any trace section
+	 */
+	public static void record(int span, long start) {
+		if(start == 0) {
+			return;
+		}
+		sBuffer.put(span, start, System.nanoTime() - start);
+	}
+
+	/**
+	 * Records {@link #SPAN_FIRST_FRAME} once the dialog's window is about to draw for the first time
+	 * @param dialog a dialog that has just been shown
+	 * @param start the timestamp the dialog creation started at, as returned by {@link #begin}
+	 */
+	public static void watchFirstFrame(Dialog dialog, final long start) {
+		if(start == 0 || dialog == null || dialog.getWindow() == null) {
+			return;
+		}
+		final View decor = dialog.getWindow().getDecorView();
+		decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+			@Override
+			public boolean onPreDraw() {
+				decor.getViewTreeObserver().removeOnPreDrawListener(this);
+				record(SPAN_FIRST_FRAME, start);
+				return true;
+			}
+		});
+	}
+}
@@ -0,0 +1,93 @@
+package lib.dialogfragment.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, lock-free ring of recorded spans. <br />
+ * Any thread can {@link #put} without locking or allocating; once the ring is full
+ * the oldest spans get overwritten. A single consumer at a time reads them back
+ * through {@link #drain(DialogMetrics.Sink)}.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+final class SpanRingBuffer {
+	private static final int FIELDS = 3;
+
+	private final int mCapacity;
+	private final int mMask;
+	private final AtomicLongArray mData;
+	private final AtomicLongArray mSequences;
+	private final AtomicLong mHead = new AtomicLong();
+	private long mTail;
+	private long mDropped;
+
+	/**
+	 * @param capacity amount of spans kept, rounded up to a power of two
+	 */
+	SpanRingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		mCapacity = size;
+		mMask = size - 1;
+		mData = new AtomicLongArray(size * FIELDS);
+		mSequences = new AtomicLongArray(size);
+		for(int i = 0; i < size; i++) {
+			mSequences.set(i, -1);
+		}
+	}
+
+	void put(int span, long startNanos, long durationNanos) {
+		long seq = mHead.getAndIncrement();
+		int slot = (int) (seq & mMask);
+		int base = slot * FIELDS;
+		// readers skip a slot while it's being written
+		mSequences.set(slot, -1);
+		mData.lazySet(base, span);
+		mData.lazySet(base + 1, startNanos);
+		mData.lazySet(base + 2, durationNanos);
+		mSequences.set(slot, seq);
+	}
+
+	/**
+	 * Hands every complete span recorded since the last call to the sink
+	 * @return how many spans were delivered
+	 */
+	synchronized int drain(DialogMetrics.Sink sink) {
+		long head = mHead.get();
+		if(head - mTail > mCapacity) {
+			mDropped += head - mTail - mCapacity;
+			mTail = head - mCapacity;
+		}
+		int ret = 0;
+		while(mTail < head) {
+			int slot = (int) (mTail & mMask);
+			int base = slot * FIELDS;
+			long seq = mSequences.get(slot);
+			if(seq == -1 || seq < mTail) {
+				// still being written, pick it up on the next drain
+				break;
+			}
+			int span = (int) mData.get(base);
+			long start = mData.get(base + 1);
+			long duration = mData.get(base + 2);
+			if(seq == mTail && mSequences.get(slot) == seq) {
+				if(sink != null) {
+					sink.onSpan(span, start, duration);
+				}
+				ret++;
+			} else {
+				mDropped++;
+			}
+			mTail++;
+		}
+		return ret;
+	}
+
+	synchronized long getDroppedCount() {
+		return mDropped;
+	}
+
+	int getCapacity() {
+		return mCapacity;
+	}
+}
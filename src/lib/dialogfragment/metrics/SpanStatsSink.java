@@ -0,0 +1,144 @@
+package lib.dialogfragment.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * {@link DialogMetrics.Sink} that aggregates the spans and reports them as JSON. <br />
+ * For every span it keeps the count, min, max, mean and a log2 histogram to estimate
+ * percentiles, all in preallocated arrays, so feeding it allocates nothing. <br />
+ * The JSON report is meant to be archived per build, so timing regressions show up
+ * as plain diffs:
+ * <pre>
+ * {"spans":[{"name":"onCreateDialog","count":12,"minNanos":..,"maxNanos":..,"meanNanos":..,"p50Nanos":..,"p90Nanos":..,"p99Nanos":..}, ...]}
+ * </pre>
+ * It stands in for an off-device benchmark harness (JMH, Robolectric), which the Eclipse ADT
+ * build of the library has no place for.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class SpanStatsSink implements DialogMetrics.Sink {
+	private static final int BUCKETS = 64;
+
+	private final long[] mCount;
+	private final long[] mTotal;
+	private final long[] mMin;
+	private final long[] mMax;
+	private final long[][] mHistogram;
+
+	public SpanStatsSink() {
+		int spans = DialogMetrics.getSpanCount();
+		mCount = new long[spans];
+		mTotal = new long[spans];
+		mMin = new long[spans];
+		mMax = new long[spans];
+		mHistogram = new long[spans][BUCKETS];
+		reset();
+	}
+
+	@Override
+	public synchronized void onSpan(int span, long startNanos, long durationNanos) {
+		if(span < 0 || span >= mCount.length || durationNanos < 0) {
+			return;
+		}
+		mCount[span]++;
+		mTotal[span] += durationNanos;
+		if(durationNanos < mMin[span]) {
+			mMin[span] = durationNanos;
+		}
+		if(durationNanos > mMax[span]) {
+			mMax[span] = durationNanos;
+		}
+		int bucket = durationNanos == 0 ? 0 : BUCKETS - 1 - Long.numberOfLeadingZeros(durationNanos);
+		mHistogram[span][bucket]++;
+	}
+
+	public synchronized void reset() {
+		for(int i = 0; i < mCount.length; i++) {
+			mCount[i] = 0;
+			mTotal[i] = 0;
+			mMin[i] = Long.MAX_VALUE;
+			mMax[i] = 0;
+			for(int j = 0; j < BUCKETS; j++) {
+				mHistogram[i][j] = 0;
+			}
+		}
+	}
+
+	public synchronized long getCount(int span) {
+		return mCount[span];
+	}
+
+	public synchronized long getMeanNanos(int span) {
+		return mCount[span] == 0 ? 0 : mTotal[span] / mCount[span];
+	}
+
+	/**
+	 * Estimates a percentile out of the log2 histogram, so it's only exact to a power of two
+	 * @param span one of the {@link DialogMetrics} <i>SPAN_*</i> constants
+	 * @param percentile between 0 and 100
+	 * @return the upper bound of the bucket holding the percentile, capped by the max seen
+	 */
+	public synchronized long getPercentileNanos(int span, int percentile) {
+		long count = mCount[span];
+		if(count == 0) {
+			return 0;
+		}
+		long rank = (count * percentile + 99) / 100;
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += mHistogram[span][i];
+			if(seen >= rank && seen > 0) {
+				long upper = i >= BUCKETS - 2 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+				return Math.min(upper, mMax[span]);
+			}
+		}
+		return mMax[span];
+	}
+
+	/**
+	 * Writes the report of every span recorded at least once
+	 */
+	public synchronized void writeJson(Writer out) throws IOException {
+		out.write("{\"spans\":[");
+		boolean first = true;
+		for(int i = 0; i < mCount.length; i++) {
+			if(mCount[i] == 0) {
+				continue;
+			}
+			if(!first) {
+				out.write(',');
+			}
+			first = false;
+			out.write("{\"name\":\"");
+			out.write(DialogMetrics.getSpanName(i));
+			out.write("\",\"count\":");
+			out.write(Long.toString(mCount[i]));
+			out.write(",\"minNanos\":");
+			out.write(Long.toString(mMin[i]));
+			out.write(",\"maxNanos\":");
+			out.write(Long.toString(mMax[i]));
+			out.write(",\"meanNanos\":");
+			out.write(Long.toString(getMeanNanos(i)));
+			out.write(",\"p50Nanos\":");
+			out.write(Long.toString(getPercentileNanos(i, 50)));
+			out.write(",\"p90Nanos\":");
+			out.write(Long.toString(getPercentileNanos(i, 90)));
+			out.write(",\"p99Nanos\":");
+			out.write(Long.toString(getPercentileNanos(i, 99)));
+			out.write('}');
+		}
+		out.write("]}");
+	}
+
+	public String toJson() {
+		StringWriter ret = new StringWriter();
+		try {
+			writeJson(ret);
+		} catch(IOException ioe) {
+			// a StringWriter never throws
+		}
+		return ret.toString();
+	}
+}
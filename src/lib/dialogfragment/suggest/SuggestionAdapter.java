@@ -0,0 +1,88 @@
+package lib.dialogfragment.suggest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.Filter;
+import android.widget.Filterable;
+import android.widget.TextView;
+
+/**
+ * Drop-down adapter of an AutoCompleteTextView over a {@link SuggestionSource}.
+ * Lookups run on the filter's own background thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class SuggestionAdapter extends BaseAdapter implements Filterable {
+	private final LayoutInflater mInflater;
+	private final SuggestionSource mSource;
+	private List<String> mSuggestions = new ArrayList<String>(0);
+
+	private final Filter mFilter = new Filter() {
+		@Override
+		protected FilterResults performFiltering(CharSequence constraint) {
+			FilterResults ret = new FilterResults();
+			if(constraint != null) {
+				List<String> suggestions = mSource.suggest(constraint);
+				ret.values = suggestions;
+				ret.count = suggestions.size();
+			}
+			return ret;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		protected void publishResults(CharSequence constraint, FilterResults results) {
+			if(results.values != null) {
+				mSuggestions = (List<String>) results.values;
+			} else {
+				mSuggestions = new ArrayList<String>(0);
+			}
+			if(results.count > 0) {
+				notifyDataSetChanged();
+			} else {
+				notifyDataSetInvalidated();
+			}
+		}
+	};
+
+	public SuggestionAdapter(Context context, SuggestionSource source) {
+		mInflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		mSource = source;
+	}
+
+	@Override
+	public Filter getFilter() {
+		return mFilter;
+	}
+
+	@Override
+	public int getCount() {
+		return mSuggestions.size();
+	}
+
+	@Override
+	public String getItem(int position) {
+		return mSuggestions.get(position);
+	}
+
+	@Override
+	public long getItemId(int position) {
+		return position;
+	}
+
+	@Override
+	public View getView(int position, View convertView, ViewGroup parent) {
+		View ret = convertView;
+		if(ret == null) {
+			ret = mInflater.inflate(android.R.layout.simple_dropdown_item_1line, parent, false);
+		}
+		((TextView) ret.findViewById(android.R.id.text1)).setText(mSuggestions.get(position));
+		return ret;
+	}
+}
@@ -0,0 +1,353 @@
+package lib.dialogfragment.suggest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lib.dialogfragment.list.ArrayItemSource;
+import lib.dialogfragment.list.PrefixIndex;
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Suggestions for edit dialogs, out of what was entered before and of vocabularies
+ * supplied by the app. <br />
+ * The history keeps the latest entries up to its capacity, dropping the least recently
+ * used ones, and is saved to a private file in the background after every change. It's
+ * also kept sorted, so a lookup only visits the entries starting with the prefix, and
+ * its capacity is bounded by {@link #MAX_CAPACITY} so even those stay few.
+ * Vocabularies are indexed with a {@link PrefixIndex}, so a lookup is two binary searches
+ * however many words they hold. <br />
+ * Nothing is read or indexed until {@link #load()}, which edit dialogs call the first time
+ * they're shown with suggestions; until then, and while loading, lookups just find less.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class SuggestionSource {
+	/**
+	 * Default amount of entries kept in the history
+	 */
+	public static final int DEFAULT_CAPACITY = 200;
+	/**
+	 * Most entries the history can keep
+	 */
+	public static final int MAX_CAPACITY = 2000;
+	/**
+	 * Most suggestions handed back by a lookup
+	 */
+	public static final int MAX_SUGGESTIONS = 8;
+
+	private static final String TAG = "SuggestionSource";
+	private static final String FILE_PREFIX = "suggestions_";
+	private static final AtomicBoolean NEVER_CANCELLED = new AtomicBoolean();
+	private static final HashMap<String, SuggestionSource> sSources = new HashMap<String, SuggestionSource>();
+	private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, "Suggestions");
+			ret.setDaemon(true);
+			ret.setPriority(Thread.MIN_PRIORITY);
+			return ret;
+		}
+	});
+
+	private final File mFile;
+	private final Locale mLocale = Locale.getDefault();
+	private final AtomicBoolean mSaveScheduled = new AtomicBoolean();
+	// guarded by this from here on
+	// lowercase entry to entry, least recently used first
+	private final LinkedHashMap<String, String> mHistory;
+	// the same entries, sorted by their lowercase text
+	private final TreeMap<String, Recent> mSorted = new TreeMap<String, Recent>();
+	private long mStamp;
+	private final ArrayList<String> mVocabulary = new ArrayList<String>();
+	private int mCapacity = DEFAULT_CAPACITY;
+	private boolean mLoaded;
+	private boolean mIndexStale;
+	private PrefixIndex mIndex;
+	private String[] mWords;
+
+	private final Runnable mSave = new Runnable() {
+		@Override
+		public void run() {
+			mSaveScheduled.set(false);
+			save();
+		}
+	};
+
+	private SuggestionSource(Context context, String name) {
+		mFile = new File(context.getFilesDir(), FILE_PREFIX + name);
+		mHistory = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				if(size() <= mCapacity) {
+					return false;
+				}
+				mSorted.remove(eldest.getKey());
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * @param context any Context; only its application one is kept
+	 * @param name the name of the source, also naming the file its history is saved to
+	 * @return the source by that name, created on the first call
+	 */
+	public static SuggestionSource get(Context context, String name) {
+		synchronized(sSources) {
+			SuggestionSource ret = sSources.get(name);
+			if(ret == null) {
+				ret = new SuggestionSource(context.getApplicationContext(), name);
+				sSources.put(name, ret);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * @param capacity amount of entries kept in the history, up to {@link #MAX_CAPACITY}
+	 * @return this same source
+	 */
+	public synchronized SuggestionSource setCapacity(int capacity) {
+		if(capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+		}
+		mCapacity = capacity;
+		return this;
+	}
+
+	/**
+	 * Adds words to suggest besides the history. Indexed on the next {@link #load()}, or
+	 * right away if the source was already loaded.
+	 * @return this same source
+	 */
+	public SuggestionSource addVocabulary(String[] words) {
+		boolean loaded;
+		synchronized(this) {
+			for(String word : words) {
+				mVocabulary.add(word);
+			}
+			mIndexStale = true;
+			loaded = mLoaded;
+		}
+		if(loaded) {
+			sExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					buildIndex();
+				}
+			});
+		}
+		return this;
+	}
+
+	/**
+	 * Reads the history and indexes the vocabularies in the background, the first time it's called
+	 */
+	public void load() {
+		synchronized(this) {
+			if(mLoaded) {
+				return;
+			}
+			mLoaded = true;
+		}
+		sExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				readHistory();
+				buildIndex();
+			}
+		});
+	}
+
+	/**
+	 * Adds an entry to the history, or makes it the most recent one; the history is saved in the background
+	 */
+	public void remember(String text) {
+		String entry = text.trim();
+		if(entry.length() == 0 || entry.indexOf('\n') >= 0) {
+			return;
+		}
+		// the file has to be read before it's written over
+		load();
+		synchronized(this) {
+			putHistory(entry);
+		}
+		if(mSaveScheduled.compareAndSet(false, true)) {
+			sExecutor.execute(mSave);
+		}
+	}
+
+	/**
+	 * @param prefix what was typed so far
+	 * @return up to {@link #MAX_SUGGESTIONS} entries starting with the prefix, ignoring case:
+	 * the history's first, most recent first, then the vocabularies', alphabetically
+	 */
+	public List<String> suggest(CharSequence prefix) {
+		String key = prefix.toString().trim().toLowerCase(mLocale);
+		ArrayList<String> ret = new ArrayList<String>(MAX_SUGGESTIONS);
+		if(key.length() == 0) {
+			return ret;
+		}
+		// the most recent matches, most recent first
+		Recent[] recent = new Recent[MAX_SUGGESTIONS];
+		int found = 0;
+		synchronized(this) {
+			for(Recent entry : mSorted.tailMap(key).values()) {
+				if(!entry.key.startsWith(key)) {
+					break;
+				}
+				if(found == MAX_SUGGESTIONS && entry.stamp < recent[found - 1].stamp) {
+					continue;
+				}
+				int i = found < MAX_SUGGESTIONS ? found++ : found - 1;
+				for(; i > 0 && recent[i - 1].stamp < entry.stamp; i--) {
+					recent[i] = recent[i - 1];
+				}
+				recent[i] = entry;
+			}
+			for(int i = 0; i < found; i++) {
+				ret.add(recent[i].text);
+			}
+			if(mIndex != null) {
+				int to = mIndex.upperBound(key);
+				for(int i = mIndex.lowerBound(key); i < to && ret.size() < MAX_SUGGESTIONS; i++) {
+					String word = mWords[mIndex.getPosition(i)];
+					if(!mHistory.containsKey(word.toLowerCase(mLocale))) {
+						ret.add(word);
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	private void readHistory() {
+		if(!mFile.exists()) {
+			return;
+		}
+		ArrayList<String> entries = new ArrayList<String>();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), "UTF-8"));
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.length() > 0) {
+					entries.add(line);
+				}
+			}
+		} catch(IOException e) {
+			Log.w(TAG, "Couldn't read " + mFile, e);
+		} finally {
+			close(reader);
+		}
+		synchronized(this) {
+			// whatever was remembered meanwhile is more recent than the file
+			ArrayList<String> recent = new ArrayList<String>(mHistory.values());
+			mHistory.clear();
+			mSorted.clear();
+			for(String entry : entries) {
+				putHistory(entry);
+			}
+			for(String entry : recent) {
+				putHistory(entry);
+			}
+		}
+	}
+
+	/**
+	 * Adds the entry to the history as its most recent one; to be called holding the lock
+	 */
+	private void putHistory(String entry) {
+		String key = entry.toLowerCase(mLocale);
+		mHistory.put(key, entry);
+		mSorted.put(key, new Recent(key, entry, mStamp++));
+	}
+
+	private void buildIndex() {
+		String[] words;
+		synchronized(this) {
+			if(!mIndexStale) {
+				return;
+			}
+			mIndexStale = false;
+			words = mVocabulary.toArray(new String[mVocabulary.size()]);
+		}
+		PrefixIndex index = PrefixIndex.build(new ArrayItemSource(words), mLocale, NEVER_CANCELLED);
+		synchronized(this) {
+			mWords = words;
+			mIndex = index;
+		}
+	}
+
+	private void save() {
+		ArrayList<String> entries;
+		synchronized(this) {
+			entries = new ArrayList<String>(mHistory.values());
+		}
+		// written aside and renamed, so a crash never leaves half a file
+		File tmp = new File(mFile.getPath() + ".tmp");
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+			for(String entry : entries) {
+				writer.write(entry);
+				writer.write('\n');
+			}
+			writer.close();
+			writer = null;
+			if(!tmp.renameTo(mFile)) {
+				Log.w(TAG, "Couldn't write " + mFile);
+			}
+		} catch(IOException e) {
+			Log.w(TAG, "Couldn't write " + mFile, e);
+		} finally {
+			close(writer);
+		}
+	}
+
+	/**
+	 * A history entry, with the order it was last used in
+	 */
+	private static final class Recent {
+		final String key;
+		final String text;
+		final long stamp;
+
+		Recent(String key, String text, long stamp) {
+			this.key = key;
+			this.text = text;
+			this.stamp = stamp;
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if(closeable != null) {
+			try {
+				closeable.close();
+			} catch(IOException e) {
+				// nothing left to do
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package lib.dialogfragment.util;
+
+import java.util.Locale;
+
+import lib.dialogfragment.R;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+/**
+ * Cache of the default <i>yes</i> and <i>no</i> button labels, shared by every dialog. <br />
+ * The labels are looked up once per configuration locale; after that, a dialog without
+ * custom labels does no resource lookup at all. The cache is dropped on configuration
+ * changes and reloaded, for the new locale, by the next dialog. <br />
+ * Call {@link #preload(Context)} (e.g. on your Application's onCreate) to have the labels
+ * ready before the first dialog, even before any Activity exists.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class ButtonLabels {
+	private static volatile Labels sLabels;
+	private static boolean sCallbacksRegistered;
+
+	private ButtonLabels() {}
+
+	/**
+	 * Resolves the labels for the application's current locale and keeps them
+	 * up to date with its configuration changes
+	 * @param context any context, only its application context is kept
+	 */
+	public static void preload(Context context) {
+		Context app = context.getApplicationContext();
+		if(!sCallbacksRegistered) {
+			sCallbacksRegistered = true;
+			app.registerComponentCallbacks(CALLBACKS);
+		}
+		get(app.getResources());
+	}
+
+	public static String getYes(Resources res) {
+		return get(res).yes;
+	}
+
+	public static String getNo(Resources res) {
+		return get(res).no;
+	}
+
+	/**
+	 * Drops the cached labels, the next dialog looks them up again
+	 */
+	public static void invalidate() {
+		sLabels = null;
+	}
+
+	private static Labels get(Resources res) {
+		Locale locale = res.getConfiguration().locale;
+		Labels ret = sLabels;
+		if(ret == null || locale == null || !locale.equals(ret.locale)) {
+			ret = new Labels(locale, res.getString(R.string.yes), res.getString(R.string.no));
+			sLabels = ret;
+		}
+		return ret;
+	}
+
+	private static final ComponentCallbacks CALLBACKS = new ComponentCallbacks() {
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {
+			invalidate();
+		}
+
+		@Override
+		public void onLowMemory() {}
+	};
+
+	private static class Labels {
+		final Locale locale;
+		final String yes;
+		final String no;
+
+		Labels(Locale locale, String yes, String no) {
+			this.locale = locale;
+			this.yes = yes;
+			this.no = no;
+		}
+	}
+}
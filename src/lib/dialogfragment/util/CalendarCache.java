@@ -0,0 +1,146 @@
+package lib.dialogfragment.util;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+/**
+ * Cache of the default time zone, and of a {@link Calendar} and the date format symbols
+ * per locale. <br />
+ * Both {@link Calendar#getInstance()} and {@link TimeZone#getDefault()} look the defaults
+ * up and build new objects on every call; here they're built once, and calendars are
+ * cloned from the cached one. The time zone doesn't depend on the locale, and each locale
+ * asked for (usually the default one and the one of the resources) keeps its own entry,
+ * so alternating between them doesn't rebuild anything. <br />
+ * Nothing is cached until {@link #watch(Context)} registers for the time zone and locale
+ * broadcasts, which drop the cache; until then every method just goes to the defaults.
+ * The calendar widgets and dialogs call it themselves. Every method can be called from
+ * any thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class CalendarCache {
+	private static final Object sLock = new Object();
+	private static volatile boolean sWatching;
+	private static volatile TimeZone sZone;
+	private static final ConcurrentHashMap<Locale, Prototype> sPrototypes = new ConcurrentHashMap<Locale, Prototype>();
+
+	private CalendarCache() {}
+
+	/**
+	 * Starts caching, dropping the cache whenever the time zone or the locale change.
+	 * Later calls do nothing.
+	 * @param context any Context; the receiver is registered on its application one
+	 */
+	public static void watch(Context context) {
+		synchronized(sLock) {
+			if(sWatching) {
+				return;
+			}
+			IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
+			filter.addAction(Intent.ACTION_LOCALE_CHANGED);
+			context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+				@Override
+				public void onReceive(Context c, Intent intent) {
+					sZone = null;
+					sPrototypes.clear();
+				}
+			}, filter);
+			sWatching = true;
+		}
+	}
+
+	/**
+	 * @return the default time zone. It's shared, so it must not be modified.
+	 */
+	public static TimeZone getTimeZone() {
+		if(!sWatching) {
+			return TimeZone.getDefault();
+		}
+		TimeZone ret = sZone;
+		if(ret == null) {
+			ret = TimeZone.getDefault();
+			sZone = ret;
+		}
+		return ret;
+	}
+
+	/**
+	 * Same as {@link Calendar#getInstance()}
+	 * @return a new calendar in the default time zone and locale, set to the current time
+	 */
+	public static Calendar newCalendar() {
+		Prototype prototype = getPrototype(Locale.getDefault());
+		if(prototype == null) {
+			return Calendar.getInstance();
+		}
+		Calendar ret = prototype.newCalendar();
+		ret.setTimeInMillis(System.currentTimeMillis());
+		return ret;
+	}
+
+	/**
+	 * @return the first day of the week in the locale, e.g. {@link Calendar#MONDAY}
+	 */
+	public static int getFirstDayOfWeek(Locale locale) {
+		Prototype prototype = getPrototype(locale);
+		return prototype != null ? prototype.firstDayOfWeek : Calendar.getInstance(locale).getFirstDayOfWeek();
+	}
+
+	/**
+	 * @return the date format symbols of the locale. They're shared, so they must not be modified.
+	 */
+	public static DateFormatSymbols getSymbols(Locale locale) {
+		Prototype prototype = getPrototype(locale);
+		return prototype != null ? prototype.symbols : DateFormatSymbols.getInstance(locale);
+	}
+
+	/**
+	 * @return the cached prototype for the locale, built if it's missing or for another time zone;
+	 * null while not watching
+	 */
+	private static Prototype getPrototype(Locale locale) {
+		if(!sWatching) {
+			return null;
+		}
+		TimeZone zone = getTimeZone();
+		Prototype ret = sPrototypes.get(locale);
+		if(ret == null || ret.zone != zone) {
+			// building it twice on a race is harmless, the last one stays
+			ret = new Prototype(zone, locale);
+			sPrototypes.put(locale, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Everything cached for a locale, in a time zone; never changed once built
+	 */
+	private static final class Prototype {
+		final TimeZone zone;
+		final DateFormatSymbols symbols;
+		final int firstDayOfWeek;
+		private final Calendar mCalendar;
+
+		Prototype(TimeZone zone, Locale locale) {
+			this.zone = zone;
+			symbols = DateFormatSymbols.getInstance(locale);
+			mCalendar = Calendar.getInstance(zone, locale);
+			firstDayOfWeek = mCalendar.getFirstDayOfWeek();
+		}
+
+		Calendar newCalendar() {
+			// Calendar isn't thread-safe, not even for cloning
+			synchronized(mCalendar) {
+				return (Calendar) mCalendar.clone();
+			}
+		}
+	}
+}
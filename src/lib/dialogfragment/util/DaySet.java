@@ -0,0 +1,241 @@
+package lib.dialogfragment.util;
+
+import java.util.NoSuchElementException;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Set of {@link EpochDay epoch days}, kept as a bitset: one bit per day between the
+ * first and the last day in the set, so decades of holidays or booked days take a few
+ * kilobytes and checking a day is a shift and a mask. <br />
+ * Days can be added one at a time, in any order, as they're read from wherever they
+ * come from; the bitset grows as needed. It parcels as its words with data, with no
+ * empty words at either end, so it can travel in a fragment's arguments.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class DaySet implements Parcelable {
+	private static final long[] EMPTY = new long[0];
+
+	// bit (day & 63) of mWords[(day >> 6) - mFirstWord] is set if day is in the set
+	private long mFirstWord;
+	private long[] mWords;
+
+	public DaySet() {
+		mWords = EMPTY;
+	}
+
+	/**
+	 * @param other the set whose days are copied
+	 */
+	public DaySet(DaySet other) {
+		mFirstWord = other.mFirstWord;
+		mWords = other.mWords.length == 0 ? EMPTY : other.mWords.clone();
+	}
+
+	private DaySet(long firstWord, long[] words) {
+		mFirstWord = firstWord;
+		mWords = words;
+	}
+
+	/**
+	 * @return whether the day is in the set
+	 */
+	public boolean contains(long epochDay) {
+		long word = (epochDay >> 6) - mFirstWord;
+		return word >= 0 && word < mWords.length && (mWords[(int) word] & (1L << epochDay)) != 0;
+	}
+
+	/**
+	 * @return whether any day between both, both included, is in the set; checked a word at a time
+	 */
+	public boolean containsAny(long fromDay, long toDay) {
+		long from = Math.max(fromDay, mFirstWord << 6);
+		long to = Math.min(toDay, ((mFirstWord + mWords.length) << 6) - 1);
+		if(from > to) {
+			return false;
+		}
+		int first = (int) ((from >> 6) - mFirstWord);
+		int last = (int) ((to >> 6) - mFirstWord);
+		long firstMask = -1L << from;
+		long lastMask = -1L >>> (63 - (to & 63));
+		if(first == last) {
+			return (mWords[first] & firstMask & lastMask) != 0;
+		}
+		if((mWords[first] & firstMask) != 0 || (mWords[last] & lastMask) != 0) {
+			return true;
+		}
+		for(int i = first + 1; i < last; i++) {
+			if(mWords[i] != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the earliest day in the set
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public long first() {
+		for(int i = 0; i < mWords.length; i++) {
+			if(mWords[i] != 0) {
+				return ((mFirstWord + i) << 6) + Long.numberOfTrailingZeros(mWords[i]);
+			}
+		}
+		throw new NoSuchElementException();
+	}
+
+	/**
+	 * @return the latest day in the set
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public long last() {
+		for(int i = mWords.length - 1; i >= 0; i--) {
+			if(mWords[i] != 0) {
+				return ((mFirstWord + i) << 6) + 63 - Long.numberOfLeadingZeros(mWords[i]);
+			}
+		}
+		throw new NoSuchElementException();
+	}
+
+	/**
+	 * @return this same set
+	 */
+	public DaySet add(long epochDay) {
+		int word = ensureWord(epochDay >> 6);
+		mWords[word] |= 1L << epochDay;
+		return this;
+	}
+
+	/**
+	 * Adds every day between both, both included
+	 * @return this same set
+	 */
+	public DaySet addRange(long fromDay, long toDay) {
+		if(fromDay > toDay) {
+			return this;
+		}
+		ensureWord(toDay >> 6);
+		int first = ensureWord(fromDay >> 6);
+		int last = (int) ((toDay >> 6) - mFirstWord);
+		long firstMask = -1L << fromDay;
+		long lastMask = -1L >>> (63 - (toDay & 63));
+		if(first == last) {
+			mWords[first] |= firstMask & lastMask;
+			return this;
+		}
+		mWords[first] |= firstMask;
+		for(int i = first + 1; i < last; i++) {
+			mWords[i] = -1L;
+		}
+		mWords[last] |= lastMask;
+		return this;
+	}
+
+	/**
+	 * @return this same set
+	 */
+	public DaySet remove(long epochDay) {
+		long word = (epochDay >> 6) - mFirstWord;
+		if(word >= 0 && word < mWords.length) {
+			mWords[(int) word] &= ~(1L << epochDay);
+		}
+		return this;
+	}
+
+	public boolean isEmpty() {
+		for(long word : mWords) {
+			if(word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the amount of days in the set
+	 */
+	public int size() {
+		int ret = 0;
+		for(long word : mWords) {
+			ret += Long.bitCount(word);
+		}
+		return ret;
+	}
+
+	public void clear() {
+		mFirstWord = 0;
+		mWords = EMPTY;
+	}
+
+	/**
+	 * @return the index in mWords of the given word, growing the array to cover it if needed
+	 */
+	private int ensureWord(long word) {
+		if(mWords.length == 0) {
+			mFirstWord = word;
+			mWords = new long[1];
+			return 0;
+		}
+		long index = word - mFirstWord;
+		if(index >= 0 && index < mWords.length) {
+			return (int) index;
+		}
+		// grows at least twofold, so adding days one by one stays linear overall
+		int length = mWords.length;
+		if(index < 0) {
+			int grow = (int) Math.max(-index, length);
+			long[] words = new long[length + grow];
+			System.arraycopy(mWords, 0, words, grow, length);
+			mWords = words;
+			mFirstWord -= grow;
+			return (int) (word - mFirstWord);
+		}
+		int grow = (int) Math.max(index - length + 1, length);
+		long[] words = new long[length + grow];
+		System.arraycopy(mWords, 0, words, 0, length);
+		mWords = words;
+		return (int) index;
+	}
+
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+
+	@Override
+	public void writeToParcel(Parcel dest, int flags) {
+		int from = 0;
+		int to = mWords.length;
+		while(from < to && mWords[from] == 0) {
+			from++;
+		}
+		while(to > from && mWords[to - 1] == 0) {
+			to--;
+		}
+		dest.writeLong(mFirstWord + from);
+		dest.writeInt(to - from);
+		for(int i = from; i < to; i++) {
+			dest.writeLong(mWords[i]);
+		}
+	}
+
+	public static final Parcelable.Creator<DaySet> CREATOR = new Parcelable.Creator<DaySet>() {
+		@Override
+		public DaySet createFromParcel(Parcel source) {
+			long firstWord = source.readLong();
+			long[] words = new long[source.readInt()];
+			for(int i = 0; i < words.length; i++) {
+				words[i] = source.readLong();
+			}
+			return words.length == 0 ? new DaySet() : new DaySet(firstWord, words);
+		}
+
+		@Override
+		public DaySet[] newArray(int size) {
+			return new DaySet[size];
+		}
+	};
+}
@@ -0,0 +1,215 @@
+package lib.dialogfragment.util;
+
+import lib.dialogfragment.R;
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+
+/**
+ * Opt-in pool of pre-inflated dialog layouts. <br />
+ * Inflating the content of the Edit and Calendar dialogs is most of the time a user
+ * waits between tapping a button and seeing the dialog, so {@link #prewarm(Activity)}
+ * inflates them ahead of time, one at a time, whenever the main thread goes idle. <br />
+ * The dialogs then take their content from {@link #obtain(Context, int)}, which falls
+ * back to a regular inflation when the pool is empty. <br />
+ * Pooled views belong to a single Activity and are dropped when it's destroyed
+ * (configuration changes included) or on {@link ComponentCallbacks2#onTrimMemory(int)}. <br />
+ * Every method of this class must be called from the main thread.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class DialogViewPool {
+	public static final int DEFAULT_CAPACITY = 2;
+
+	private static final SparseArray<Slot> sSlots = new SparseArray<Slot>();
+	private static Activity sOwner;
+	private static boolean sIdleScheduled;
+	private static boolean sCallbacksRegistered;
+	private static int sHits;
+	private static int sMisses;
+
+	private DialogViewPool() {}
+
+	/**
+	 * Pre-inflates the Edit and Calendar dialog layouts for the given Activity
+	 * @param activity the Activity that will show the dialogs
+	 */
+	public static void prewarm(Activity activity) {
+		prewarm(activity, R.layout.edit_dialog_fragment, DEFAULT_CAPACITY);
+		prewarm(activity, R.layout.calendar_dialog_fragment, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Keeps up to <i>capacity</i> ready copies of a layout for the given Activity. <br />
+	 * Inflation happens on later idle passes of the main thread, never inside this call.
+	 * @param activity the Activity that will show the dialogs
+	 * @param layoutId the layout to pre-inflate
+	 * @param capacity how many copies to keep around
+	 */
+	public static void prewarm(Activity activity, int layoutId, int capacity) {
+		registerCallbacks(activity);
+		if(sOwner != activity) {
+			release();
+			sOwner = activity;
+		}
+		Slot slot = sSlots.get(layoutId);
+		if(slot == null) {
+			slot = new Slot(capacity);
+			sSlots.put(layoutId, slot);
+		} else if(slot.views.length < capacity) {
+			View[] views = new View[capacity];
+			System.arraycopy(slot.views, 0, views, 0, slot.count);
+			slot.views = views;
+		}
+		scheduleFill();
+	}
+
+	/**
+	 * Returns a parent-less view of the given layout, straight from the pool
+	 * when one is ready for this context, or freshly inflated otherwise
+	 * @param context the Activity the view will be shown in
+	 * @param layoutId the layout to get
+	 * @return a view ready to be set on a dialog
+	 */
+	public static View obtain(Context context, int layoutId) {
+		Slot slot = sSlots.get(layoutId);
+		if(slot != null && context == sOwner && slot.count > 0) {
+			View ret = slot.views[--slot.count];
+			slot.views[slot.count] = null;
+			sHits++;
+			scheduleFill();
+			return ret;
+		}
+		sMisses++;
+		LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		return inflater.inflate(layoutId, null);
+	}
+
+	/**
+	 * Drops every pooled view and stops pre-inflating until the next {@link #prewarm} call
+	 */
+	public static void release() {
+		sSlots.clear();
+		sOwner = null;
+	}
+
+	public static int getHitCount() {
+		return sHits;
+	}
+
+	public static int getMissCount() {
+		return sMisses;
+	}
+
+	/**
+	 * @return the share of {@link #obtain} calls served from the pool, between 0 and 1
+	 */
+	public static float getHitRate() {
+		int total = sHits + sMisses;
+		return total == 0 ? 0f : (float) sHits / total;
+	}
+
+	public static void resetStats() {
+		sHits = 0;
+		sMisses = 0;
+	}
+
+	private static void scheduleFill() {
+		if(!sIdleScheduled && sOwner != null) {
+			sIdleScheduled = true;
+			Looper.myQueue().addIdleHandler(IDLE_FILLER);
+		}
+	}
+
+	private static void registerCallbacks(Activity activity) {
+		if(sCallbacksRegistered) {
+			return;
+		}
+		sCallbacksRegistered = true;
+		Application app = activity.getApplication();
+		app.registerComponentCallbacks(MEMORY_CALLBACKS);
+		app.registerActivityLifecycleCallbacks(LIFECYCLE_CALLBACKS);
+	}
+
+	/**
+	 * Inflates a single view per idle pass, so the main thread is never held for long
+	 */
+	private static final MessageQueue.IdleHandler IDLE_FILLER = new MessageQueue.IdleHandler() {
+		@Override
+		public boolean queueIdle() {
+			if(sOwner == null) {
+				sIdleScheduled = false;
+				return false;
+			}
+			for(int i = 0; i < sSlots.size(); i++) {
+				Slot slot = sSlots.valueAt(i);
+				if(slot.count < slot.views.length) {
+					LayoutInflater inflater = (LayoutInflater) sOwner.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+					slot.views[slot.count++] = inflater.inflate(sSlots.keyAt(i), null);
+					return true;
+				}
+			}
+			sIdleScheduled = false;
+			return false;
+		}
+	};
+
+	private static final ComponentCallbacks2 MEMORY_CALLBACKS = new ComponentCallbacks2() {
+		@Override
+		public void onTrimMemory(int level) {
+			release();
+		}
+
+		@Override
+		public void onLowMemory() {
+			release();
+		}
+
+		@Override
+		public void onConfigurationChanged(Configuration newConfig) {}
+	};
+
+	private static final Application.ActivityLifecycleCallbacks LIFECYCLE_CALLBACKS = new Application.ActivityLifecycleCallbacks() {
+		@Override
+		public void onActivityDestroyed(Activity activity) {
+			if(activity == sOwner) {
+				release();
+			}
+		}
+
+		@Override
+		public void onActivityCreated(Activity activity, Bundle savedInstanceState) {}
+
+		@Override
+		public void onActivityStarted(Activity activity) {}
+
+		@Override
+		public void onActivityResumed(Activity activity) {}
+
+		@Override
+		public void onActivityPaused(Activity activity) {}
+
+		@Override
+		public void onActivityStopped(Activity activity) {}
+
+		@Override
+		public void onActivitySaveInstanceState(Activity activity, Bundle outState) {}
+	};
+
+	private static class Slot {
+		View[] views;
+		int count;
+
+		Slot(int capacity) {
+			views = new View[capacity];
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package lib.dialogfragment.util;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Plain arithmetic over <i>epoch days</i> (days elapsed since 1970-01-01). <br />
+ * Every date the calendar widgets handle is kept as a single <code>long</code>, so
+ * moving around a month never builds a {@link Calendar}. <br />
+ * Dates follow the proleptic Gregorian calendar and months are zero-based,
+ * just like {@link Calendar#MONTH}.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class EpochDay {
+	public static final long MILLIS_PER_DAY = 24L * 60L * 60L * 1000L;
+	public static final long MILLIS_PER_MINUTE = 60L * 1000L;
+
+	private static final int DAYS_PER_CYCLE = 146097;
+	private static final long DAYS_0000_TO_1970 = 719468L;
+
+	private EpochDay() {}
+
+	/**
+	 * Converts a calendar date into its epoch day
+	 * @param year The full year, e.g. 1982
+	 * @param month The zero-based month, e.g. {@link Calendar#SEPTEMBER}
+	 * @param dayOfMonth The one-based day of the month
+	 * @return the epoch day of the date
+	 */
+	public static long of(int year, int month, int dayOfMonth) {
+		int m = month + 1;
+		long y = m <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (m > 2 ? m - 3 : m + 9) + 2) / 5 + dayOfMonth - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * DAYS_PER_CYCLE + doe - DAYS_0000_TO_1970;
+	}
+
+	/**
+	 * @param epochDay the date
+	 * @return the full year of the date
+	 */
+	public static int year(long epochDay) {
+		long z = epochDay + DAYS_0000_TO_1970;
+		long era = (z >= 0 ? z : z - (DAYS_PER_CYCLE - 1)) / DAYS_PER_CYCLE;
+		long doe = z - era * DAYS_PER_CYCLE;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / (DAYS_PER_CYCLE - 1)) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		return (int) (yoe + era * 400 + (mp >= 10 ? 1 : 0));
+	}
+
+	/**
+	 * @param epochDay the date
+	 * @return the zero-based month of the date
+	 */
+	public static int month(long epochDay) {
+		long mp = (5 * dayOfEra(epochDay) + 2) / 153;
+		return (int) (mp < 10 ? mp + 2 : mp - 10);
+	}
+
+	/**
+	 * @param epochDay the date
+	 * @return the one-based day of the month of the date
+	 */
+	public static int dayOfMonth(long epochDay) {
+		long doy = dayOfEra(epochDay);
+		long mp = (5 * doy + 2) / 153;
+		return (int) (doy - (153 * mp + 2) / 5 + 1);
+	}
+
+	/**
+	 * @param epochDay the date
+	 * @return the day of the week, as one of the {@link Calendar#SUNDAY}...{@link Calendar#SATURDAY} constants
+	 */
+	public static int dayOfWeek(long epochDay) {
+		// 1970-01-01 was a Thursday
+		return (int) floorMod(epochDay + 4, 7) + Calendar.SUNDAY;
+	}
+
+	/**
+	 * @param year The full year
+	 * @param month The zero-based month
+	 * @return the amount of days the month has
+	 */
+	public static int lengthOfMonth(int year, int month) {
+		switch(month) {
+		case Calendar.FEBRUARY:
+			return isLeapYear(year) ? 29 : 28;
+		case Calendar.APRIL:
+		case Calendar.JUNE:
+		case Calendar.SEPTEMBER:
+		case Calendar.NOVEMBER:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	public static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/**
+	 * Finds the local date some instant falls on
+	 * @param millis milliseconds since the epoch
+	 * @param zone the time zone the date is seen from
+	 * @return the epoch day
+	 */
+	public static long fromMillis(long millis, TimeZone zone) {
+		return floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY);
+	}
+
+	/**
+	 * Finds the instant the given date starts at
+	 * @param epochDay the date
+	 * @param zone the time zone the date is seen from
+	 * @return milliseconds since the epoch of the local midnight
+	 */
+	public static long toMillis(long epochDay, TimeZone zone) {
+		long local = epochDay * MILLIS_PER_DAY;
+		// try the offsets on both sides of any DST transition near midnight and
+		// keep the earliest instant that still falls on the requested date
+		long before = local - zone.getOffset(local - MILLIS_PER_DAY);
+		long after = local - zone.getOffset(local + MILLIS_PER_DAY);
+		boolean beforeValid = fromMillis(before, zone) == epochDay;
+		boolean afterValid = fromMillis(after, zone) == epochDay;
+		if(beforeValid && afterValid) {
+			return Math.min(before, after);
+		}
+		return afterValid ? after : before;
+	}
+
+	/**
+	 * Finds the local time of day some instant falls on
+	 * @param millis milliseconds since the epoch
+	 * @param zone the time zone the time is seen from
+	 * @return minutes since the local midnight
+	 */
+	public static int minuteOfDay(long millis, TimeZone zone) {
+		return (int) (floorMod(millis + zone.getOffset(millis), MILLIS_PER_DAY) / MILLIS_PER_MINUTE);
+	}
+
+	/**
+	 * Finds the instant a local date and time fall on
+	 * @param epochDay the date
+	 * @param minuteOfDay minutes since the local midnight
+	 * @param zone the time zone the date and time are seen from
+	 * @return milliseconds since the epoch
+	 */
+	public static long toMillis(long epochDay, int minuteOfDay, TimeZone zone) {
+		long local = epochDay * MILLIS_PER_DAY + minuteOfDay * MILLIS_PER_MINUTE;
+		// the offset taken at the local time as if it were UTC is off by an hour near DST
+		// transitions, so it is taken again at the instant it first pointed to
+		return local - zone.getOffset(local - zone.getOffset(local));
+	}
+
+	private static long dayOfEra(long epochDay) {
+		long z = epochDay + DAYS_0000_TO_1970;
+		long era = (z >= 0 ? z : z - (DAYS_PER_CYCLE - 1)) / DAYS_PER_CYCLE;
+		long doe = z - era * DAYS_PER_CYCLE;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / (DAYS_PER_CYCLE - 1)) / 365;
+		return doe - (365 * yoe + yoe / 4 - yoe / 100);
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		if((x % y != 0) && ((x ^ y) < 0)) {
+			q--;
+		}
+		return q;
+	}
+
+	private static long floorMod(long x, long y) {
+		return x - floorDiv(x, y) * y;
+	}
+}
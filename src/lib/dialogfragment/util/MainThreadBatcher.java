@@ -0,0 +1,62 @@
+package lib.dialogfragment.util;
+
+import java.util.ArrayList;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Runs work on the main thread on behalf of any other thread. <br />
+ * Everything posted before the main thread gets to it runs under a single
+ * {@link Handler} message, so a burst of requests arriving within the same
+ * frame costs one message instead of one each. <br />
+ * Runnables run in the order they were posted.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class MainThreadBatcher {
+	private static final Handler sHandler = new Handler(Looper.getMainLooper());
+	private static final ArrayList<Runnable> sPending = new ArrayList<Runnable>();
+	// only touched from the main thread
+	private static final ArrayList<Runnable> sRunning = new ArrayList<Runnable>();
+	// guarded by sPending
+	private static boolean sPosted;
+
+	private MainThreadBatcher() {}
+
+	/**
+	 * Queues the runnable for the next batch. Can be called from any thread.
+	 */
+	public static void post(Runnable runnable) {
+		synchronized(sPending) {
+			sPending.add(runnable);
+			if(sPosted) {
+				return;
+			}
+			sPosted = true;
+		}
+		sHandler.post(FLUSH);
+	}
+
+	public static boolean isMainThread() {
+		return Looper.myLooper() == Looper.getMainLooper();
+	}
+
+	private static final Runnable FLUSH = new Runnable() {
+		@Override
+		public void run() {
+			synchronized(sPending) {
+				sRunning.addAll(sPending);
+				sPending.clear();
+				sPosted = false;
+			}
+			try {
+				for(int i = 0; i < sRunning.size(); i++) {
+					sRunning.get(i).run();
+				}
+			} finally {
+				sRunning.clear();
+			}
+		}
+	};
+}
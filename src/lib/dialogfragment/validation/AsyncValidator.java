@@ -0,0 +1,17 @@
+package lib.dialogfragment.validation;
+
+/**
+ * Slow check of the text of an edit dialog, such as a lookup on a database. <br />
+ * It runs on a background thread once the user stops typing for a while, and it's
+ * interrupted if the text changes meanwhile.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public interface AsyncValidator {
+	/**
+	 * @param text the text, as it was when the user stopped typing
+	 * @return null if the text is valid, the error to show otherwise
+	 * @throws InterruptedException if interrupted while blocked, the text having changed
+	 */
+	public CharSequence validate(String text) throws InterruptedException;
+}
@@ -0,0 +1,219 @@
+package lib.dialogfragment.validation;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.EditText;
+
+/**
+ * Validation of the text of an edit dialog while it's typed. <br />
+ * {@link Validator}s run on every keystroke, on the text itself. Once they all pass,
+ * {@link AsyncValidator}s run on a background thread after the user stops typing for the
+ * debounce delay, one after the other, and are interrupted as soon as the text changes.
+ * The confirm button is only enabled while the text is valid, and the first error found
+ * is shown on the text box. <br />
+ * Validators aren't saved along with the dialog: once re-created, the dialog asks its
+ * Activity for them again if it implements {@link Provider}.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class EditValidation implements TextWatcher {
+	/**
+	 * Default time the text has to stay unchanged for the async validators to run, in milliseconds
+	 */
+	public static final long DEFAULT_DEBOUNCE = 300;
+
+	private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread ret = new Thread(r, "EditValidation");
+			ret.setDaemon(true);
+			return ret;
+		}
+	});
+	private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+	/**
+	 * Hands an edit dialog its validation back after it's re-created. To be implemented by the Activity.
+	 */
+	public interface Provider {
+		/**
+		 * @param tag the tag the dialog was shown with
+		 * @return the validation of the dialog, null for none
+		 */
+		public EditValidation getValidation(String tag);
+	}
+
+	private final ArrayList<Validator> mValidators = new ArrayList<Validator>();
+	private final ArrayList<AsyncValidator> mAsyncValidators = new ArrayList<AsyncValidator>();
+	private long mDebounce = DEFAULT_DEBOUNCE;
+	// main thread only
+	private EditText mEditText;
+	private View mButton;
+	private CharSequence mError;
+	private boolean mValid;
+	private int mGeneration;
+	private Future<?> mRunning;
+
+	private final Runnable mDebounced = new Runnable() {
+		@Override
+		public void run() {
+			runAsync();
+		}
+	};
+
+	/**
+	 * @return this same validation
+	 */
+	public EditValidation add(Validator validator) {
+		mValidators.add(validator);
+		return this;
+	}
+
+	/**
+	 * @return this same validation
+	 */
+	public EditValidation addAsync(AsyncValidator validator) {
+		mAsyncValidators.add(validator);
+		return this;
+	}
+
+	/**
+	 * @param millis how long the text has to stay unchanged for the async validators to run
+	 * @return this same validation
+	 */
+	public EditValidation setDebounce(long millis) {
+		mDebounce = millis;
+		return this;
+	}
+
+	/**
+	 * @return whether the text passed every validator the last time it was checked
+	 */
+	public boolean isValid() {
+		return mValid;
+	}
+
+	/**
+	 * Starts validating the text box, right away and then on every change.
+	 * Meant for the dialogs themselves.
+	 * @param editText the text box
+	 * @param button the confirm button, enabled only while the text is valid
+	 */
+	public void attach(EditText editText, View button) {
+		detach();
+		mEditText = editText;
+		mButton = button;
+		mError = null;
+		mEditText.addTextChangedListener(this);
+		afterTextChanged(mEditText.getText());
+	}
+
+	/**
+	 * Stops validating, cancelling any async validator running
+	 */
+	public void detach() {
+		if(mEditText != null) {
+			mEditText.removeTextChangedListener(this);
+		}
+		cancelAsync();
+		mEditText = null;
+		mButton = null;
+	}
+
+	@Override
+	public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+	@Override
+	public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+	@Override
+	public void afterTextChanged(Editable s) {
+		cancelAsync();
+		for(int i = 0; i < mValidators.size(); i++) {
+			CharSequence error = mValidators.get(i).validate(s);
+			if(error != null) {
+				show(false, error);
+				return;
+			}
+		}
+		if(mAsyncValidators.isEmpty()) {
+			show(true, null);
+			return;
+		}
+		// pending until the async validators are done
+		show(false, null);
+		sHandler.postDelayed(mDebounced, mDebounce);
+	}
+
+	private void runAsync() {
+		if(mEditText == null) {
+			return;
+		}
+		// copied once the user stops typing, so the worker never touches the Editable
+		final String text = mEditText.getText().toString();
+		final AsyncValidator[] validators = mAsyncValidators.toArray(new AsyncValidator[mAsyncValidators.size()]);
+		final int generation = mGeneration;
+		mRunning = sExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				CharSequence error = null;
+				try {
+					for(AsyncValidator validator : validators) {
+						if(Thread.currentThread().isInterrupted()) {
+							return;
+						}
+						error = validator.validate(text);
+						if(error != null) {
+							break;
+						}
+					}
+				} catch(InterruptedException e) {
+					return;
+				}
+				final CharSequence result = error;
+				sHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						if(generation == mGeneration && mEditText != null) {
+							mRunning = null;
+							show(result == null, result);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Drops the debounced run, interrupts the running one and discards its result
+	 */
+	private void cancelAsync() {
+		mGeneration++;
+		sHandler.removeCallbacks(mDebounced);
+		if(mRunning != null) {
+			mRunning.cancel(true);
+			mRunning = null;
+		}
+	}
+
+	private void show(boolean valid, CharSequence error) {
+		mValid = valid;
+		if(mButton != null) {
+			mButton.setEnabled(valid);
+		}
+		// the same validator hands back the same error, so this skips most updates
+		if(mEditText != null && error != mError) {
+			mEditText.setError(error);
+			mError = error;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package lib.dialogfragment.validation;
+
+/**
+ * Synchronous check of the text of an edit dialog, run on the main thread on every keystroke. <br />
+ * It should neither allocate nor copy the text out (e.g. with <i>toString</i>), since it runs
+ * while the user types. See {@link Validators} for ready-made ones.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public interface Validator {
+	/**
+	 * @param text the current text, not to be kept
+	 * @return null if the text is valid, the error to show otherwise
+	 */
+	public CharSequence validate(CharSequence text);
+}
@@ -0,0 +1,72 @@
+package lib.dialogfragment.validation;
+
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ready-made {@link Validator}s. <br />
+ * Patterns are compiled once per expression and shared by every validator using it,
+ * and each validator reuses a single Matcher, so checking a keystroke allocates nothing.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public final class Validators {
+	private static final HashMap<String, Pattern> sPatterns = new HashMap<String, Pattern>();
+
+	private Validators() {}
+
+	/**
+	 * @param error the error shown when the text is empty
+	 * @return a validator requiring some text
+	 */
+	public static Validator notEmpty(CharSequence error) {
+		return length(1, Integer.MAX_VALUE, error);
+	}
+
+	/**
+	 * @param min the minimum amount of characters
+	 * @param max the maximum amount of characters
+	 * @param error the error shown when the text is too short or too long
+	 * @return a validator requiring a text length between min and max, both included
+	 */
+	public static Validator length(final int min, final int max, final CharSequence error) {
+		return new Validator() {
+			@Override
+			public CharSequence validate(CharSequence text) {
+				int length = text.length();
+				return length >= min && length <= max ? null : error;
+			}
+		};
+	}
+
+	/**
+	 * @param regex the expression the whole text must match
+	 * @param error the error shown when the text doesn't match
+	 * @return a validator requiring the text to match the expression
+	 */
+	public static Validator pattern(String regex, final CharSequence error) {
+		// one matcher per validator, which only runs on the main thread
+		final Matcher matcher = compile(regex).matcher("");
+		return new Validator() {
+			@Override
+			public CharSequence validate(CharSequence text) {
+				return matcher.reset(text).matches() ? null : error;
+			}
+		};
+	}
+
+	/**
+	 * @return the compiled expression, shared by every validator using it
+	 */
+	public static Pattern compile(String regex) {
+		synchronized(sPatterns) {
+			Pattern ret = sPatterns.get(regex);
+			if(ret == null) {
+				ret = Pattern.compile(regex);
+				sPatterns.put(regex, ret);
+			}
+			return ret;
+		}
+	}
+}
@@ -0,0 +1,970 @@
+package lib.dialogfragment.widget;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+
+import lib.dialogfragment.events.EventLoader;
+import lib.dialogfragment.util.CalendarCache;
+import lib.dialogfragment.util.DaySet;
+import lib.dialogfragment.util.EpochDay;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.widget.OverScroller;
+
+/**
+ * Lightweight month grid. <br />
+ * Android's {@link android.widget.CalendarView} is a ListView of week rows, which
+ * makes it really slow to inflate and to draw for the first time. <br />
+ * This view has no children at all: the whole month is painted in a single
+ * {@link #onDraw} pass and touches are resolved to a day with plain arithmetic. <br />
+ * Tapping the arrows on the header, or swiping sideways, pages between months. <br />
+ * Tapping the title opens a year grid, then a month grid, to jump to a distant date in
+ * a couple of taps: every jump is computed, no month in between is ever laid out, and
+ * only the visible rows of the year grid are drawn, however long the range of years. <br />
+ * Days out of the bounds set with {@link #setDayBounds}, or in the set given to
+ * {@link #setDisabledDays}, are greyed out and can't be picked. Days with events, loaded
+ * month by month through {@link #setEventLoader}, get a dot under their number. <br />
+ * Besides a single day, a range of days or any set of them can be selected (see
+ * {@link #setSelectionMode}). Either is checked per cell drawn, in constant time, so
+ * drawing costs the same however many days are selected.
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class MonthView extends View {
+	/**
+	 * Callback for the day selection, mirroring {@link android.widget.CalendarView.OnDateChangeListener}
+	 */
+	public interface OnDateChangeListener {
+		public void onSelectedDayChange(MonthView view, int year, int month, int dayOfMonth);
+	}
+
+	public static final int MODE_DAYS = 0;
+	public static final int MODE_MONTHS = 1;
+	public static final int MODE_YEARS = 2;
+	public static final int DEFAULT_MIN_YEAR = 1900;
+	public static final int DEFAULT_MAX_YEAR = 2100;
+	public static final int SELECTION_SINGLE = 0;
+	public static final int SELECTION_RANGE = 1;
+	public static final int SELECTION_MULTIPLE = 2;
+	/**
+	 * Stands for no day at all, e.g. the end of a range whose start was just picked
+	 */
+	public static final long NO_DAY = Long.MIN_VALUE;
+
+	private static final int COLUMNS = 7;
+	private static final int ROWS = 6;
+	private static final int MONTH_COLUMNS = 3;
+	private static final int MONTH_ROWS = 4;
+	private static final int YEAR_COLUMNS = 4;
+	private static final String PICKER_HINT = " \u25BE";
+	private static final int[] THEME_ATTRS = { android.R.attr.textColorPrimary };
+	private static final int SELECTION_COLOR = 0xFF33B5E5;
+	private static final String PREVIOUS = "\u2039";
+	private static final String NEXT = "\u203A";
+	private static final String[] DAY_LABELS = new String[32];
+	static {
+		for(int i = 1; i < DAY_LABELS.length; i++) {
+			DAY_LABELS[i] = String.valueOf(i);
+		}
+	}
+
+	private final Paint mDayPaint;
+	private final Paint mDisabledPaint;
+	private final Paint mHeaderPaint;
+	private final Paint mWeekdayPaint;
+	private final Paint mSelectionPaint;
+	private final Paint mRangePaint;
+	private final Paint mEventPaint;
+	private final String[] mMonthNames;
+	private final String[] mShortMonthNames;
+	private final String[] mWeekdayLabels;
+	private final int mFirstDayOfWeek;
+	private final int mTouchSlop;
+	private final int mPagingSlop;
+	private final int mMinFlingVelocity;
+	private final int mMaxFlingVelocity;
+	private final OverScroller mScroller;
+	private final float mHeaderHeight;
+	private final float mWeekdayHeight;
+	private final float mDefaultCellHeight;
+	private final float mYearRowHeight;
+
+	private long mSelectedDay;
+	private int mYear;
+	private int mMonth;
+	private int mOffset;
+	private int mLength;
+	private String mTitle;
+	private long mMinDay = Long.MIN_VALUE;
+	private long mMaxDay = Long.MAX_VALUE;
+	private DaySet mDisabledDays;
+	private EventLoader mEvents;
+	private int[] mEventCounts;
+	private int mSelectionMode = SELECTION_SINGLE;
+	private long mRangeStart = NO_DAY;
+	private long mRangeEnd = NO_DAY;
+	private DaySet mSelectedDays;
+	private int mMode = MODE_DAYS;
+	private int mMinYear = DEFAULT_MIN_YEAR;
+	private int mMaxYear = DEFAULT_MAX_YEAR;
+	// the year browsed in the month and year grids
+	private int mPickerYear;
+	private String[] mYearLabels;
+	private int mYearScroll;
+	private VelocityTracker mVelocityTracker;
+	private boolean mDragging;
+	private float mLastY;
+
+	private float mCellWidth;
+	private float mCellHeight;
+	private float mDownX;
+	private float mDownY;
+	private OnDateChangeListener mListener;
+
+	private final EventLoader.Listener mEventsListener = new EventLoader.Listener() {
+		@Override
+		public void onMonthLoaded(int year, int month) {
+			if(year == mYear && month == mMonth) {
+				mEventCounts = mEvents.get(year, month);
+				invalidate();
+			}
+		}
+	};
+
+	public MonthView(Context context) {
+		this(context, null);
+	}
+
+	public MonthView(Context context, AttributeSet attrs) {
+		this(context, attrs, 0);
+	}
+
+	public MonthView(Context context, AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+		CalendarCache.watch(context);
+
+		TypedArray a = context.obtainStyledAttributes(attrs, THEME_ATTRS);
+		int textColor = a.getColor(0, Color.BLACK);
+		a.recycle();
+
+		mDayPaint = newTextPaint(textColor, dp(15));
+		mDisabledPaint = newTextPaint(textColor, dp(15));
+		mDisabledPaint.setAlpha(0x44);
+		mHeaderPaint = newTextPaint(textColor, dp(18));
+		mHeaderPaint.setFakeBoldText(true);
+		mWeekdayPaint = newTextPaint(textColor, dp(12));
+		mWeekdayPaint.setAlpha(0x99);
+		mSelectionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		mSelectionPaint.setColor(SELECTION_COLOR);
+		mRangePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		mRangePaint.setColor(SELECTION_COLOR);
+		mRangePaint.setAlpha(0x55);
+		mEventPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+		mEventPaint.setColor(SELECTION_COLOR);
+
+		mHeaderHeight = dp(48);
+		mWeekdayHeight = dp(28);
+		mDefaultCellHeight = dp(40);
+		mYearRowHeight = dp(56);
+
+		ViewConfiguration vc = ViewConfiguration.get(context);
+		mTouchSlop = vc.getScaledTouchSlop();
+		mPagingSlop = vc.getScaledPagingTouchSlop();
+		mMinFlingVelocity = vc.getScaledMinimumFlingVelocity();
+		mMaxFlingVelocity = vc.getScaledMaximumFlingVelocity();
+		mScroller = new OverScroller(context);
+
+		Locale locale = context.getResources().getConfiguration().locale;
+		DateFormatSymbols symbols = CalendarCache.getSymbols(locale);
+		mMonthNames = symbols.getMonths();
+		mShortMonthNames = symbols.getShortMonths();
+		mFirstDayOfWeek = CalendarCache.getFirstDayOfWeek(locale);
+		String[] weekdays = symbols.getShortWeekdays();
+		mWeekdayLabels = new String[COLUMNS];
+		for(int i = 0; i < COLUMNS; i++) {
+			mWeekdayLabels[i] = weekdays[(mFirstDayOfWeek - 1 + i) % COLUMNS + 1];
+		}
+
+		setSelectedDay(EpochDay.fromMillis(System.currentTimeMillis(), CalendarCache.getTimeZone()));
+	}
+
+	/**
+	 * Sets the selected date and shows its month, just like {@link android.widget.CalendarView#setDate(long)}
+	 * @param millis milliseconds since the epoch of the date to select
+	 */
+	public void setDate(long millis) {
+		setSelectedDay(EpochDay.fromMillis(millis, CalendarCache.getTimeZone()));
+	}
+
+	/**
+	 * @return milliseconds since the epoch of the local midnight of the selected date
+	 */
+	public long getDate() {
+		return EpochDay.toMillis(mSelectedDay, CalendarCache.getTimeZone());
+	}
+
+	/**
+	 * Sets the selected date and shows its month
+	 * @param epochDay the date to select, in days since 1970-01-01
+	 */
+	public void setSelectedDay(long epochDay) {
+		mSelectedDay = epochDay;
+		showMonth(EpochDay.year(epochDay), EpochDay.month(epochDay));
+	}
+
+	/**
+	 * @return the selected date, in days since 1970-01-01
+	 */
+	public long getSelectedDay() {
+		return mSelectedDay;
+	}
+
+	/**
+	 * @param mode {@link #SELECTION_SINGLE}, the default; {@link #SELECTION_RANGE}, where a
+	 * tap starts a range and the next one ends it; or {@link #SELECTION_MULTIPLE}, where
+	 * each tap adds or removes a day. Tapped days become the selected day all the same.
+	 */
+	public void setSelectionMode(int mode) {
+		mSelectionMode = mode;
+		invalidate();
+	}
+
+	public int getSelectionMode() {
+		return mSelectionMode;
+	}
+
+	/**
+	 * Sets the range selected in {@link #SELECTION_RANGE} mode
+	 * @param fromDay the first day, {@link #NO_DAY} for none
+	 * @param toDay the last day, both included; {@link #NO_DAY} while only the first was picked
+	 */
+	public void setSelectedRange(long fromDay, long toDay) {
+		mRangeStart = fromDay;
+		mRangeEnd = toDay;
+		invalidate();
+	}
+
+	/**
+	 * @return the first day of the selected range, {@link #NO_DAY} if none
+	 */
+	public long getRangeStart() {
+		return mRangeStart;
+	}
+
+	/**
+	 * @return the last day of the selected range, {@link #NO_DAY} while only the first was picked
+	 */
+	public long getRangeEnd() {
+		return mRangeEnd;
+	}
+
+	/**
+	 * Sets the days selected in {@link #SELECTION_MULTIPLE} mode
+	 * @param days the selected days, null for none. Not copied: taps add to it and remove
+	 * from it, and it isn't saved with the view, so whoever owns it keeps it across re-creation.
+	 */
+	public void setSelectedDays(DaySet days) {
+		mSelectedDays = days;
+		invalidate();
+	}
+
+	/**
+	 * @return the days selected in {@link #SELECTION_MULTIPLE} mode, null if none were ever
+	 */
+	public DaySet getSelectedDays() {
+		return mSelectedDays;
+	}
+
+	/**
+	 * @return whether the day is highlighted as selected, in the current selection mode
+	 */
+	private boolean isSelected(long epochDay) {
+		switch(mSelectionMode) {
+		case SELECTION_RANGE:
+			return epochDay == mRangeStart || (mRangeEnd != NO_DAY && epochDay > mRangeStart && epochDay <= mRangeEnd);
+		case SELECTION_MULTIPLE:
+			return mSelectedDays != null && mSelectedDays.contains(epochDay);
+		default:
+			return epochDay == mSelectedDay;
+		}
+	}
+
+	/**
+	 * Pages to the given month without changing the selection
+	 * @param year The full year
+	 * @param month The zero-based month
+	 */
+	public void showMonth(int year, int month) {
+		mYear = year;
+		mMonth = month;
+		long first = EpochDay.of(year, month, 1);
+		mOffset = (EpochDay.dayOfWeek(first) - mFirstDayOfWeek + COLUMNS) % COLUMNS;
+		mLength = EpochDay.lengthOfMonth(year, month);
+		mTitle = mMonthNames[month] + " " + year + PICKER_HINT;
+		mMode = MODE_DAYS;
+		loadEvents();
+		invalidate();
+	}
+
+	/**
+	 * Marks the days with events, asking the loader for each month shown
+	 * @param loader the loader of the events, null for none
+	 */
+	public void setEventLoader(EventLoader loader) {
+		if(mEvents != null) {
+			mEvents.setListener(null);
+		}
+		mEvents = loader;
+		if(loader != null) {
+			loader.setListener(mEventsListener);
+		}
+		loadEvents();
+		invalidate();
+	}
+
+	/**
+	 * Takes the counts of the shown month, if loaded, and has the months around it loaded ahead
+	 */
+	private void loadEvents() {
+		mEventCounts = null;
+		if(mEvents == null) {
+			return;
+		}
+		mEventCounts = mEvents.get(mYear, mMonth);
+		if(mMonth == Calendar.DECEMBER) {
+			mEvents.prefetch(mYear + 1, Calendar.JANUARY);
+		} else {
+			mEvents.prefetch(mYear, mMonth + 1);
+		}
+		if(mMonth == Calendar.JANUARY) {
+			mEvents.prefetch(mYear - 1, Calendar.DECEMBER);
+		} else {
+			mEvents.prefetch(mYear, mMonth - 1);
+		}
+	}
+
+	/**
+	 * Limits the days that can be picked, and the months that can be paged to
+	 * @param minDay the first day that can be picked, {@link Long#MIN_VALUE} for no limit
+	 * @param maxDay the last day that can be picked, {@link Long#MAX_VALUE} for no limit
+	 */
+	public void setDayBounds(long minDay, long maxDay) {
+		mMinDay = minDay;
+		mMaxDay = maxDay;
+		mYearLabels = null;
+		invalidate();
+	}
+
+	/**
+	 * @param days days that can't be picked, null for none. Not copied, so
+	 * changes to the set show up on the next draw.
+	 */
+	public void setDisabledDays(DaySet days) {
+		mDisabledDays = days;
+		invalidate();
+	}
+
+	/**
+	 * @return whether the day is within bounds and not disabled
+	 */
+	public boolean isSelectable(long epochDay) {
+		return epochDay >= mMinDay && epochDay <= mMaxDay && (mDisabledDays == null || !mDisabledDays.contains(epochDay));
+	}
+
+	public void showNextMonth() {
+		if(!hasNextMonth()) {
+			return;
+		}
+		if(mMonth == Calendar.DECEMBER) {
+			showMonth(mYear + 1, Calendar.JANUARY);
+		} else {
+			showMonth(mYear, mMonth + 1);
+		}
+	}
+
+	public void showPreviousMonth() {
+		if(!hasPreviousMonth()) {
+			return;
+		}
+		if(mMonth == Calendar.JANUARY) {
+			showMonth(mYear - 1, Calendar.DECEMBER);
+		} else {
+			showMonth(mYear, mMonth - 1);
+		}
+	}
+
+	/**
+	 * @return whether the next month starts before the last day that can be picked
+	 */
+	public boolean hasNextMonth() {
+		return EpochDay.of(mYear, mMonth, mLength) < mMaxDay;
+	}
+
+	/**
+	 * @return whether the previous month ends after the first day that can be picked
+	 */
+	public boolean hasPreviousMonth() {
+		return EpochDay.of(mYear, mMonth, 1) > mMinDay;
+	}
+
+	public int getShownYear() {
+		return mYear;
+	}
+
+	public int getShownMonth() {
+		return mMonth;
+	}
+
+	/**
+	 * Sets the years the year grid goes through; the day bounds narrow it further
+	 * @param minYear the first year, {@link #DEFAULT_MIN_YEAR} by default
+	 * @param maxYear the last year, {@link #DEFAULT_MAX_YEAR} by default
+	 */
+	public void setYearRange(int minYear, int maxYear) {
+		mMinYear = minYear;
+		mMaxYear = maxYear;
+		mYearLabels = null;
+		invalidate();
+	}
+
+	/**
+	 * @return {@link #MODE_DAYS}, {@link #MODE_MONTHS} or {@link #MODE_YEARS}, whichever grid is shown
+	 */
+	public int getMode() {
+		return mMode;
+	}
+
+	/**
+	 * Shows the year grid, scrolled to the shown year
+	 */
+	public void showYearPicker() {
+		mPickerYear = Math.min(Math.max(mYear, getFirstYear()), getLastYear());
+		mMode = MODE_YEARS;
+		mScroller.forceFinished(true);
+		int row = (mPickerYear - getFirstYear()) / YEAR_COLUMNS;
+		mYearScroll = clampYearScroll((int) (row * mYearRowHeight - (getGridHeight() - mYearRowHeight) / 2));
+		invalidate();
+	}
+
+	/**
+	 * Shows the month grid of the given year
+	 */
+	public void showMonthPicker(int year) {
+		mPickerYear = year;
+		mMode = MODE_MONTHS;
+		invalidate();
+	}
+
+	private int getFirstYear() {
+		return mMinDay == Long.MIN_VALUE ? mMinYear : Math.max(mMinYear, EpochDay.year(mMinDay));
+	}
+
+	private int getLastYear() {
+		return mMaxDay == Long.MAX_VALUE ? mMaxYear : Math.min(mMaxYear, EpochDay.year(mMaxDay));
+	}
+
+	/**
+	 * @return whether any day of the month is within bounds
+	 */
+	private boolean isMonthInBounds(int year, int month) {
+		return EpochDay.of(year, month, EpochDay.lengthOfMonth(year, month)) >= mMinDay && EpochDay.of(year, month, 1) <= mMaxDay;
+	}
+
+	/**
+	 * @return height of the area below the header, where the weekdays and the grids go
+	 */
+	private float getGridHeight() {
+		return mWeekdayHeight + ROWS * mCellHeight;
+	}
+
+	private int clampYearScroll(int scroll) {
+		int rows = (getLastYear() - getFirstYear()) / YEAR_COLUMNS + 1;
+		int max = Math.max(0, (int) (rows * mYearRowHeight - getGridHeight()));
+		return Math.min(Math.max(scroll, 0), max);
+	}
+
+	private String getYearLabel(int year) {
+		int first = getFirstYear();
+		if(mYearLabels == null || mYearLabels.length != getLastYear() - first + 1) {
+			mYearLabels = new String[Math.max(0, getLastYear() - first + 1)];
+		}
+		int index = year - first;
+		if(index < 0 || index >= mYearLabels.length) {
+			return String.valueOf(year);
+		}
+		// built the first time each year is drawn
+		if(mYearLabels[index] == null) {
+			mYearLabels[index] = String.valueOf(year);
+		}
+		return mYearLabels[index];
+	}
+
+	public void setOnDateChangeListener(OnDateChangeListener listener) {
+		mListener = listener;
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+		int height = (int) (mHeaderHeight + mWeekdayHeight + ROWS * mDefaultCellHeight) + getPaddingTop() + getPaddingBottom();
+		setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		mCellWidth = (float) (w - getPaddingLeft() - getPaddingRight()) / COLUMNS;
+		mCellHeight = (h - getPaddingTop() - getPaddingBottom() - mHeaderHeight - mWeekdayHeight) / ROWS;
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		switch(mMode) {
+		case MODE_YEARS:
+			drawHeader(canvas, getYearLabel(mPickerYear), false, false);
+			drawYears(canvas);
+			break;
+		case MODE_MONTHS:
+			drawHeader(canvas, getYearLabel(mPickerYear), mPickerYear > getFirstYear(), mPickerYear < getLastYear());
+			drawMonths(canvas);
+			break;
+		default:
+			drawHeader(canvas, mTitle, hasPreviousMonth(), hasNextMonth());
+			drawDays(canvas);
+			break;
+		}
+	}
+
+	private void drawHeader(Canvas canvas, String title, boolean previous, boolean next) {
+		float left = getPaddingLeft();
+		float width = mCellWidth * COLUMNS;
+		float y = getPaddingTop() + mHeaderHeight / 2;
+		if(previous) {
+			drawCentered(canvas, PREVIOUS, left + mCellWidth / 2, y, mHeaderPaint);
+		}
+		drawCentered(canvas, title, left + width / 2, y, mHeaderPaint);
+		if(next) {
+			drawCentered(canvas, NEXT, left + width - mCellWidth / 2, y, mHeaderPaint);
+		}
+	}
+
+	private void drawDays(Canvas canvas) {
+		float left = getPaddingLeft();
+		float top = getPaddingTop();
+		float y = top + mHeaderHeight + mWeekdayHeight / 2;
+		for(int i = 0; i < COLUMNS; i++) {
+			drawCentered(canvas, mWeekdayLabels[i], left + (i + 0.5f) * mCellWidth, y, mWeekdayPaint);
+		}
+
+		float gridTop = top + mHeaderHeight + mWeekdayHeight;
+		float radius = Math.min(mCellWidth, mCellHeight) * 0.42f;
+		float dotRadius = radius * 0.1f;
+		long first = EpochDay.of(mYear, mMonth, 1);
+		for(int day = 1; day <= mLength; day++) {
+			int cell = mOffset + day - 1;
+			long epochDay = first + day - 1;
+			float cx = left + (cell % COLUMNS + 0.5f) * mCellWidth;
+			float cy = gridTop + (cell / COLUMNS + 0.5f) * mCellHeight;
+			boolean selected = isSelected(epochDay);
+			if(selected && mSelectionMode == SELECTION_RANGE && mRangeEnd != NO_DAY && mRangeEnd != mRangeStart) {
+				// a band joins the days of the range, from the middle of its ends
+				float bandLeft = epochDay == mRangeStart ? cx : cx - mCellWidth / 2;
+				float bandRight = epochDay == mRangeEnd ? cx : cx + mCellWidth / 2;
+				canvas.drawRect(bandLeft, cy - radius, bandRight, cy + radius, mRangePaint);
+				if(epochDay == mRangeStart || epochDay == mRangeEnd) {
+					canvas.drawCircle(cx, cy, radius, mSelectionPaint);
+				}
+			} else if(selected) {
+				canvas.drawCircle(cx, cy, radius, mSelectionPaint);
+			}
+			drawCentered(canvas, DAY_LABELS[day], cx, cy, isSelectable(epochDay) ? mDayPaint : mDisabledPaint);
+			if(mEventCounts != null && mEventCounts[day - 1] > 0) {
+				canvas.drawCircle(cx, cy + radius * 0.65f, dotRadius, selected ? mDayPaint : mEventPaint);
+			}
+		}
+	}
+
+	private void drawMonths(Canvas canvas) {
+		float left = getPaddingLeft();
+		float gridTop = getPaddingTop() + mHeaderHeight;
+		float cellWidth = mCellWidth * COLUMNS / MONTH_COLUMNS;
+		float cellHeight = getGridHeight() / MONTH_ROWS;
+		float radius = Math.min(cellWidth, cellHeight) * 0.42f;
+		for(int month = 0; month < MONTH_COLUMNS * MONTH_ROWS; month++) {
+			float cx = left + (month % MONTH_COLUMNS + 0.5f) * cellWidth;
+			float cy = gridTop + (month / MONTH_COLUMNS + 0.5f) * cellHeight;
+			if(mPickerYear == mYear && month == mMonth) {
+				canvas.drawCircle(cx, cy, radius, mSelectionPaint);
+			}
+			drawCentered(canvas, mShortMonthNames[month], cx, cy, isMonthInBounds(mPickerYear, month) ? mDayPaint : mDisabledPaint);
+		}
+	}
+
+	/**
+	 * Draws only the rows of years within sight, wherever the grid is scrolled to
+	 */
+	private void drawYears(Canvas canvas) {
+		float left = getPaddingLeft();
+		float gridTop = getPaddingTop() + mHeaderHeight;
+		float gridBottom = gridTop + getGridHeight();
+		float cellWidth = mCellWidth * COLUMNS / YEAR_COLUMNS;
+		float radius = Math.min(cellWidth, mYearRowHeight) * 0.42f;
+		int first = getFirstYear();
+		int last = getLastYear();
+		canvas.save();
+		canvas.clipRect(left, gridTop, left + mCellWidth * COLUMNS, gridBottom);
+		int row = (int) (mYearScroll / mYearRowHeight);
+		float rowTop = gridTop + row * mYearRowHeight - mYearScroll;
+		for(; rowTop < gridBottom; row++, rowTop += mYearRowHeight) {
+			float cy = rowTop + mYearRowHeight / 2;
+			for(int column = 0; column < YEAR_COLUMNS; column++) {
+				int year = first + row * YEAR_COLUMNS + column;
+				if(year > last) {
+					break;
+				}
+				float cx = left + (column + 0.5f) * cellWidth;
+				if(year == mPickerYear) {
+					canvas.drawCircle(cx, cy, radius, mSelectionPaint);
+				}
+				drawCentered(canvas, getYearLabel(year), cx, cy, mDayPaint);
+			}
+		}
+		canvas.restore();
+	}
+
+	@Override
+	public void computeScroll() {
+		if(mScroller.computeScrollOffset()) {
+			mYearScroll = clampYearScroll(mScroller.getCurrY());
+			invalidate();
+		}
+	}
+
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		if(!isEnabled()) {
+			return false;
+		}
+		if(mMode == MODE_YEARS) {
+			return onYearsTouchEvent(event);
+		}
+		switch(event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			mDownX = event.getX();
+			mDownY = event.getY();
+			return true;
+		case MotionEvent.ACTION_UP:
+			float dx = event.getX() - mDownX;
+			float dy = event.getY() - mDownY;
+			if(Math.abs(dx) > mPagingSlop && Math.abs(dx) > Math.abs(dy)) {
+				if(mMode == MODE_MONTHS) {
+					pageMonthPicker(dx < 0 ? 1 : -1);
+				} else if(dx < 0) {
+					showNextMonth();
+				} else {
+					showPreviousMonth();
+				}
+			} else if(Math.abs(dx) < mTouchSlop && Math.abs(dy) < mTouchSlop) {
+				performClick();
+				onTap(mDownX, mDownY);
+			}
+			return true;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Scrolls the year grid by dragging, flings it, or resolves a tap to a year
+	 */
+	private boolean onYearsTouchEvent(MotionEvent event) {
+		if(mVelocityTracker == null) {
+			mVelocityTracker = VelocityTracker.obtain();
+		}
+		mVelocityTracker.addMovement(event);
+		switch(event.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			mScroller.forceFinished(true);
+			mDownX = event.getX();
+			mDownY = event.getY();
+			mLastY = mDownY;
+			mDragging = false;
+			return true;
+		case MotionEvent.ACTION_MOVE:
+			if(!mDragging && Math.abs(event.getY() - mDownY) > mTouchSlop) {
+				mDragging = true;
+			}
+			if(mDragging) {
+				mYearScroll = clampYearScroll((int) (mYearScroll + mLastY - event.getY()));
+				invalidate();
+			}
+			mLastY = event.getY();
+			return true;
+		case MotionEvent.ACTION_UP:
+			if(mDragging) {
+				mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+				float velocity = mVelocityTracker.getYVelocity();
+				if(Math.abs(velocity) > mMinFlingVelocity) {
+					mScroller.fling(0, mYearScroll, 0, (int) -velocity, 0, 0, 0, clampYearScroll(Integer.MAX_VALUE));
+					invalidate();
+				}
+			} else {
+				performClick();
+				onTap(mDownX, mDownY);
+			}
+			recycleVelocityTracker();
+			return true;
+		case MotionEvent.ACTION_CANCEL:
+			recycleVelocityTracker();
+			return true;
+		default:
+			return true;
+		}
+	}
+
+	private void recycleVelocityTracker() {
+		if(mVelocityTracker != null) {
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
+		}
+	}
+
+	private void pageMonthPicker(int years) {
+		int year = mPickerYear + years;
+		if(year >= getFirstYear() && year <= getLastYear()) {
+			showMonthPicker(year);
+		}
+	}
+
+	@Override
+	public boolean performClick() {
+		return super.performClick();
+	}
+
+	/**
+	 * Resolves a tap to either the header (arrows or title) or a cell of the grid shown
+	 */
+	private void onTap(float x, float y) {
+		if(mCellWidth <= 0 || mCellHeight <= 0) {
+			return;
+		}
+		int column = (int) ((x - getPaddingLeft()) / mCellWidth);
+		if(column < 0 || column >= COLUMNS) {
+			return;
+		}
+		float top = y - getPaddingTop();
+		if(top < mHeaderHeight) {
+			onHeaderTap(column);
+			return;
+		}
+		if(mMode == MODE_MONTHS) {
+			float gridX = x - getPaddingLeft();
+			int month = (int) ((top - mHeaderHeight) / (getGridHeight() / MONTH_ROWS)) * MONTH_COLUMNS
+					+ (int) (gridX / (mCellWidth * COLUMNS / MONTH_COLUMNS));
+			if(month < MONTH_COLUMNS * MONTH_ROWS && isMonthInBounds(mPickerYear, month)) {
+				showMonth(mPickerYear, month);
+			}
+			return;
+		}
+		if(mMode == MODE_YEARS) {
+			float gridX = x - getPaddingLeft();
+			int row = (int) ((top - mHeaderHeight + mYearScroll) / mYearRowHeight);
+			int year = getFirstYear() + row * YEAR_COLUMNS + (int) (gridX / (mCellWidth * COLUMNS / YEAR_COLUMNS));
+			if(year <= getLastYear()) {
+				showMonthPicker(year);
+			}
+			return;
+		}
+		int row = (int) ((top - mHeaderHeight - mWeekdayHeight) / mCellHeight);
+		if(top < mHeaderHeight + mWeekdayHeight || row >= ROWS) {
+			return;
+		}
+		int day = row * COLUMNS + column - mOffset + 1;
+		if(day < 1 || day > mLength) {
+			return;
+		}
+		long epochDay = EpochDay.of(mYear, mMonth, day);
+		if(!isSelectable(epochDay)) {
+			return;
+		}
+		mSelectedDay = epochDay;
+		switch(mSelectionMode) {
+		case SELECTION_RANGE:
+			selectRangeDay(epochDay);
+			break;
+		case SELECTION_MULTIPLE:
+			if(mSelectedDays == null) {
+				mSelectedDays = new DaySet();
+			}
+			if(mSelectedDays.contains(epochDay)) {
+				mSelectedDays.remove(epochDay);
+			} else {
+				mSelectedDays.add(epochDay);
+			}
+			break;
+		default:
+			break;
+		}
+		invalidate();
+		if(mListener != null) {
+			mListener.onSelectedDayChange(this, mYear, mMonth, day);
+		}
+	}
+
+	/**
+	 * Starts a range on the day, or ends the one started; a range can't go over disabled
+	 * days, so ending it past one starts a new range there instead
+	 */
+	private void selectRangeDay(long epochDay) {
+		if(mRangeStart == NO_DAY || mRangeEnd != NO_DAY) {
+			mRangeStart = epochDay;
+			mRangeEnd = NO_DAY;
+			return;
+		}
+		long from = Math.min(mRangeStart, epochDay);
+		long to = Math.max(mRangeStart, epochDay);
+		if(mDisabledDays != null && mDisabledDays.containsAny(from, to)) {
+			mRangeStart = epochDay;
+			return;
+		}
+		mRangeStart = from;
+		mRangeEnd = to;
+	}
+
+	private void onHeaderTap(int column) {
+		boolean title = column > 0 && column < COLUMNS - 1;
+		switch(mMode) {
+		case MODE_YEARS:
+			if(title) {
+				showMonth(mYear, mMonth);
+			}
+			break;
+		case MODE_MONTHS:
+			if(title) {
+				showYearPicker();
+			} else {
+				pageMonthPicker(column == 0 ? -1 : 1);
+			}
+			break;
+		default:
+			if(title) {
+				showYearPicker();
+			} else if(column == 0) {
+				showPreviousMonth();
+			} else {
+				showNextMonth();
+			}
+			break;
+		}
+	}
+
+	@Override
+	protected Parcelable onSaveInstanceState() {
+		SavedState state = new SavedState(super.onSaveInstanceState());
+		state.selectedDay = mSelectedDay;
+		state.year = mYear;
+		state.month = mMonth;
+		state.mode = mMode;
+		state.pickerYear = mPickerYear;
+		state.yearScroll = mYearScroll;
+		state.rangeStart = mRangeStart;
+		state.rangeEnd = mRangeEnd;
+		return state;
+	}
+
+	@Override
+	protected void onRestoreInstanceState(Parcelable state) {
+		if(!(state instanceof SavedState)) {
+			super.onRestoreInstanceState(state);
+			return;
+		}
+		SavedState ss = (SavedState) state;
+		super.onRestoreInstanceState(ss.getSuperState());
+		mSelectedDay = ss.selectedDay;
+		showMonth(ss.year, ss.month);
+		mMode = ss.mode;
+		mPickerYear = ss.pickerYear;
+		mYearScroll = ss.yearScroll;
+		mRangeStart = ss.rangeStart;
+		mRangeEnd = ss.rangeEnd;
+	}
+
+	private void drawCentered(Canvas canvas, String text, float cx, float cy, Paint paint) {
+		canvas.drawText(text, cx, cy - (paint.descent() + paint.ascent()) / 2, paint);
+	}
+
+	private Paint newTextPaint(int color, float size) {
+		Paint p = new Paint(Paint.ANTI_ALIAS_FLAG);
+		p.setColor(color);
+		p.setTextSize(size);
+		p.setTextAlign(Paint.Align.CENTER);
+		return p;
+	}
+
+	private float dp(int value) {
+		return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+	}
+
+	static class SavedState extends BaseSavedState {
+		long selectedDay;
+		int year;
+		int month;
+		int mode;
+		int pickerYear;
+		int yearScroll;
+		long rangeStart;
+		long rangeEnd;
+
+		SavedState(Parcelable superState) {
+			super(superState);
+		}
+
+		private SavedState(Parcel in) {
+			super(in);
+			selectedDay = in.readLong();
+			year = in.readInt();
+			month = in.readInt();
+			mode = in.readInt();
+			pickerYear = in.readInt();
+			yearScroll = in.readInt();
+			rangeStart = in.readLong();
+			rangeEnd = in.readLong();
+		}
+
+		@Override
+		public void writeToParcel(Parcel out, int flags) {
+			super.writeToParcel(out, flags);
+			out.writeLong(selectedDay);
+			out.writeInt(year);
+			out.writeInt(month);
+			out.writeInt(mode);
+			out.writeInt(pickerYear);
+			out.writeInt(yearScroll);
+			out.writeLong(rangeStart);
+			out.writeLong(rangeEnd);
+		}
+
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+			@Override
+			public SavedState createFromParcel(Parcel in) {
+				return new SavedState(in);
+			}
+
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
+	}
+}
@@ -0,0 +1,74 @@
+package lib.dialogfragment.events;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the day counts of {@link EventIndex} against counting every event by hand
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class EventIndexTest {
+	@Test
+	public void countsOneDayAndLongEvents() {
+		EventIndex index = new EventIndex.Builder()
+			.add(10)
+			.add(10)
+			.add(12, 14)
+			// a long one started long before the range
+			.add(-5000, 11)
+			.build();
+		assertEquals(4, index.size());
+		int[] counts = new int[6];
+		index.countEvents(9, 14, counts);
+		assertArrayEquals(new int[] {1, 3, 1, 1, 1, 1}, counts);
+	}
+
+	@Test
+	public void countsNothingOutsideTheEvents() {
+		EventIndex index = new EventIndex.Builder().add(-3, -1).add(100, 200).build();
+		int[] counts = new int[99];
+		index.countEvents(0, 98, counts);
+		assertArrayEquals(new int[99], counts);
+		assertEquals(0, new EventIndex.Builder().build().size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsEventsEndingBeforeTheyStart() {
+		new EventIndex.Builder().add(5, 4);
+	}
+
+	@Test
+	public void matchesABruteForceCount() {
+		Random random = new Random(11);
+		for(int round = 0; round < 300; round++) {
+			EventIndex.Builder builder = new EventIndex.Builder();
+			int count = random.nextInt(400);
+			long[] starts = new long[count];
+			long[] ends = new long[count];
+			for(int i = 0; i < count; i++) {
+				starts[i] = random.nextInt(4000) - 2000;
+				// mostly short events, with a few spanning years
+				ends[i] = starts[i] + (random.nextInt(20) == 0 ? random.nextInt(3000) : random.nextInt(5));
+				builder.add(starts[i], ends[i]);
+			}
+			EventIndex index = builder.build();
+			long from = random.nextInt(5000) - 2500;
+			int[] counts = new int[28 + random.nextInt(4)];
+			index.countEvents(from, from + counts.length - 1, counts);
+			for(int day = 0; day < counts.length; day++) {
+				int expected = 0;
+				for(int i = 0; i < count; i++) {
+					if(starts[i] <= from + day && from + day <= ends[i]) {
+						expected++;
+					}
+				}
+				assertEquals(round + " " + (from + day), expected, counts[day]);
+			}
+		}
+	}
+}
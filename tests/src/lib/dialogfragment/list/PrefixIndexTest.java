@@ -0,0 +1,92 @@
+package lib.dialogfragment.list;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Checks the prefix filtering of {@link PrefixIndex} against a linear scan
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class PrefixIndexTest {
+	@Test
+	public void findsTheItemsStartingWithAPrefix() {
+		String[] items = {"Lisbon", "london", "Berlin", "LONDONDERRY", "Lyon", "", null, "Bern"};
+		PrefixIndex index = build(items);
+		assertArrayEquals(new int[] {1, 3}, filter(index, "lond"));
+		assertArrayEquals(new int[] {0, 1, 3, 4}, filter(index, "l"));
+		assertArrayEquals(new int[] {2, 7}, filter(index, "ber"));
+		assertArrayEquals(new int[0], filter(index, "paris"));
+		// an empty prefix matches everything, null items included as empty
+		assertEquals(items.length, filter(index, "").length);
+	}
+
+	@Test
+	public void keepsSourceOrderAmongEqualItems() {
+		PrefixIndex index = build(new String[] {"b", "a", "B", "a", "A"});
+		assertArrayEquals(new int[] {1, 3, 4}, positions(index, 0, 3));
+		assertArrayEquals(new int[] {0, 2}, positions(index, 3, 5));
+	}
+
+	@Test
+	public void matchesALinearScan() {
+		Random random = new Random(7);
+		for(int count : new int[] {0, 1, 2, 3, 63, 64, 65, 1000, 5000}) {
+			String[] items = new String[count];
+			for(int i = 0; i < count; i++) {
+				items[i] = Integer.toString(random.nextInt(2000), 36);
+			}
+			PrefixIndex index = build(items);
+			for(int query = 0; query < 100; query++) {
+				String prefix = Integer.toString(random.nextInt(2000), 36);
+				prefix = prefix.substring(0, 1 + random.nextInt(prefix.length()));
+				List<Integer> expected = new ArrayList<Integer>();
+				for(int i = 0; i < count; i++) {
+					if(items[i].startsWith(prefix)) {
+						expected.add(i);
+					}
+				}
+				int[] found = filter(index, prefix);
+				Arrays.sort(found);
+				assertEquals(count + " " + prefix, expected.size(), found.length);
+				for(int i = 0; i < found.length; i++) {
+					assertEquals(expected.get(i).intValue(), found[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void cancelledBuildReturnsNull() {
+		assertNull(PrefixIndex.build(new ArrayItemSource(new String[] {"a", "b"}), Locale.ROOT, new AtomicBoolean(true)));
+	}
+
+	private static PrefixIndex build(String[] items) {
+		return PrefixIndex.build(new ArrayItemSource(items), Locale.ROOT, new AtomicBoolean());
+	}
+
+	/**
+	 * @return the source positions of the items starting with the prefix, in index order
+	 */
+	private static int[] filter(PrefixIndex index, String prefix) {
+		return positions(index, index.lowerBound(prefix), index.upperBound(prefix));
+	}
+
+	private static int[] positions(PrefixIndex index, int from, int to) {
+		int[] ret = new int[to - from];
+		for(int i = from; i < to; i++) {
+			ret[i - from] = index.getPosition(i);
+		}
+		return ret;
+	}
+}
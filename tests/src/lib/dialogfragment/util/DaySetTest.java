@@ -0,0 +1,99 @@
+package lib.dialogfragment.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link DaySet} against a {@link TreeSet}, around the 64-day word edges
+ * and on negative days
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class DaySetTest {
+	// word edges on both sides of day 0, where the shifts wrap around
+	private static final long[] EDGES = {-129, -128, -65, -64, -63, -1, 0, 1, 62, 63, 64, 65, 127, 128, 191, 192};
+
+	@Test
+	public void addRangeAtWordEdges() {
+		for(long from : EDGES) {
+			for(long to : EDGES) {
+				DaySet set = new DaySet().addRange(from, to);
+				assertEquals(from + ".." + to, Math.max(0, to - from + 1), set.size());
+				for(long day = from - 65; day <= to + 65; day++) {
+					assertEquals(from + ".." + to + " " + day, day >= from && day <= to, set.contains(day));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void containsAnyAtWordEdges() {
+		for(long day : EDGES) {
+			DaySet set = new DaySet().add(day);
+			for(long from : EDGES) {
+				for(long to : EDGES) {
+					assertEquals(day + " in " + from + ".." + to, from <= day && day <= to, set.containsAny(from, to));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void containsAnyOutsideTheWords() {
+		DaySet set = new DaySet().addRange(64, 127);
+		assertFalse(set.containsAny(-1000, 63));
+		assertFalse(set.containsAny(128, 1000));
+		assertTrue(set.containsAny(-1000, 1000));
+		assertFalse(new DaySet().containsAny(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2));
+	}
+
+	@Test
+	public void matchesATreeSet() {
+		Random random = new Random(42);
+		for(int round = 0; round < 200; round++) {
+			DaySet set = new DaySet();
+			TreeSet<Long> expected = new TreeSet<Long>();
+			for(int op = 0; op < 20; op++) {
+				long from = random.nextInt(1000) - 500;
+				long to = from + random.nextInt(random.nextBoolean() ? 3 : 200);
+				switch(random.nextInt(3)) {
+				case 0:
+					set.add(from);
+					expected.add(from);
+					break;
+				case 1:
+					set.addRange(from, to);
+					for(long day = from; day <= to; day++) {
+						expected.add(day);
+					}
+					break;
+				default:
+					set.remove(from);
+					expected.remove(from);
+					break;
+				}
+			}
+			assertEquals(expected.size(), set.size());
+			assertEquals(expected.isEmpty(), set.isEmpty());
+			if(!expected.isEmpty()) {
+				assertEquals((long) expected.first(), set.first());
+				assertEquals((long) expected.last(), set.last());
+			}
+			for(int query = 0; query < 50; query++) {
+				long from = random.nextInt(1200) - 600;
+				long to = from + random.nextInt(150);
+				Long ceiling = expected.ceiling(from);
+				assertEquals(ceiling != null && ceiling <= to, set.containsAny(from, to));
+			}
+			DaySet copy = new DaySet(set);
+			set.clear();
+			assertEquals(expected.size(), copy.size());
+		}
+	}
+}
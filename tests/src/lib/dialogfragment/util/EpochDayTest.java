@@ -0,0 +1,100 @@
+package lib.dialogfragment.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Checks {@link EpochDay} against {@link GregorianCalendar}, before the epoch included,
+ * and across DST transitions
+ * @author SleeBee (Federico Mendez)
+ *
+ */
+public class EpochDayTest {
+	// zones with DST at 2:00, at midnight (Sao Paulo until 2019) and by half an hour (Lord Howe)
+	private static final String[] ZONES = {"UTC", "America/New_York", "Europe/London", "America/Sao_Paulo", "Australia/Lord_Howe"};
+
+	@Test
+	public void dateRoundTripsBeforeAndAfterTheEpoch() {
+		GregorianCalendar cal = utcCalendar();
+		cal.set(1599, Calendar.DECEMBER, 25);
+		for(long day = EpochDay.of(1599, Calendar.DECEMBER, 25); day <= EpochDay.of(2100, Calendar.MARCH, 1); day++) {
+			int year = cal.get(Calendar.YEAR);
+			int month = cal.get(Calendar.MONTH);
+			int dayOfMonth = cal.get(Calendar.DAY_OF_MONTH);
+			assertEquals(day, EpochDay.of(year, month, dayOfMonth));
+			assertEquals(year, EpochDay.year(day));
+			assertEquals(month, EpochDay.month(day));
+			assertEquals(dayOfMonth, EpochDay.dayOfMonth(day));
+			assertEquals(cal.get(Calendar.DAY_OF_WEEK), EpochDay.dayOfWeek(day));
+			cal.add(Calendar.DAY_OF_MONTH, 1);
+		}
+	}
+
+	@Test
+	public void negativeDays() {
+		assertEquals(0, EpochDay.of(1970, Calendar.JANUARY, 1));
+		assertEquals(-1, EpochDay.of(1969, Calendar.DECEMBER, 31));
+		assertEquals(1969, EpochDay.year(-1));
+		assertEquals(Calendar.DECEMBER, EpochDay.month(-1));
+		assertEquals(31, EpochDay.dayOfMonth(-1));
+		assertEquals(Calendar.WEDNESDAY, EpochDay.dayOfWeek(-1));
+		assertEquals(-1, EpochDay.fromMillis(-1, TimeZone.getTimeZone("UTC")));
+		assertEquals(-EpochDay.MILLIS_PER_DAY, EpochDay.toMillis(-1, TimeZone.getTimeZone("UTC")));
+	}
+
+	@Test
+	public void lengthOfMonth() {
+		assertEquals(29, EpochDay.lengthOfMonth(2000, Calendar.FEBRUARY));
+		assertEquals(28, EpochDay.lengthOfMonth(1900, Calendar.FEBRUARY));
+		assertEquals(29, EpochDay.lengthOfMonth(2024, Calendar.FEBRUARY));
+		assertEquals(30, EpochDay.lengthOfMonth(2023, Calendar.APRIL));
+		assertEquals(31, EpochDay.lengthOfMonth(2023, Calendar.DECEMBER));
+	}
+
+	@Test
+	public void midnightRoundTripsAcrossDst() {
+		for(String id : ZONES) {
+			TimeZone zone = TimeZone.getTimeZone(id);
+			GregorianCalendar cal = new GregorianCalendar(zone);
+			for(long day = EpochDay.of(1960, Calendar.JANUARY, 1); day <= EpochDay.of(2030, Calendar.DECEMBER, 31); day++) {
+				long millis = EpochDay.toMillis(day, zone);
+				assertEquals(id + " " + day, day, EpochDay.fromMillis(millis, zone));
+				// the earliest instant of the day: a minute before is still the day before
+				assertEquals(id + " " + day, day - 1, EpochDay.fromMillis(millis - EpochDay.MILLIS_PER_MINUTE, zone));
+				cal.setTimeInMillis(millis);
+				assertEquals(id + " " + day, EpochDay.dayOfMonth(day), cal.get(Calendar.DAY_OF_MONTH));
+			}
+		}
+	}
+
+	@Test
+	public void timeOfDayRoundTripsAcrossDst() {
+		for(String id : ZONES) {
+			TimeZone zone = TimeZone.getTimeZone(id);
+			long end = EpochDay.toMillis(EpochDay.of(2030, Calendar.JANUARY, 1), zone);
+			// every quarter of an hour, so every transition is crossed
+			for(long millis = EpochDay.toMillis(EpochDay.of(1990, Calendar.JANUARY, 1), zone); millis < end; millis += 15 * EpochDay.MILLIS_PER_MINUTE) {
+				long day = EpochDay.fromMillis(millis, zone);
+				int minute = EpochDay.minuteOfDay(millis, zone);
+				long back = EpochDay.toMillis(day, minute, zone);
+				// in the hour repeated by a fall back either instant is fine, as long as it reads the same
+				assertEquals(id + " " + millis, day, EpochDay.fromMillis(back, zone));
+				assertEquals(id + " " + millis, minute, EpochDay.minuteOfDay(back, zone));
+			}
+		}
+	}
+
+	private static GregorianCalendar utcCalendar() {
+		GregorianCalendar ret = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		// proleptic, like EpochDay
+		ret.setGregorianChange(new Date(Long.MIN_VALUE));
+		ret.clear();
+		return ret;
+	}
+}